@@ -0,0 +1,103 @@
+/**
+ * Copyright 2016-2021 The Reaktivity Project
+ *
+ * The Reaktivity Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package org.reaktivity.nukleus.oauth.internal;
+
+import static org.agrona.BitUtil.findNextPositivePowerOfTwo;
+
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.function.ToLongFunction;
+
+// not thread-safe, one memo per elektron over the realm table last published by OAuthRealms
+final class OAuthAuthorizationMemo implements ToLongFunction<OAuthVerifiedToken>
+{
+    private final OAuthRealms realms;
+    private final int mask;
+    private final int[] hashes;
+    private final OAuthVerifiedToken[] tokens;
+    private final long[] authorizations;
+
+    private OAuthRealmTable table;
+
+    OAuthAuthorizationMemo(
+        OAuthRealms realms,
+        int capacity)
+    {
+        final int slots = findNextPositivePowerOfTwo(capacity);
+        this.realms = realms;
+        this.mask = slots - 1;
+        this.hashes = new int[slots];
+        this.tokens = new OAuthVerifiedToken[slots];
+        this.authorizations = new long[slots];
+        this.table = realms.table();
+    }
+
+    @Override
+    public long applyAsLong(
+        OAuthVerifiedToken verified)
+    {
+        final OAuthRealmTable published = realms.table();
+        if (published.generation() != table.generation())
+        {
+            table = published;
+            Arrays.fill(tokens, null);
+        }
+
+        final int hash = hash(verified);
+        final int slot = hash & mask;
+        final OAuthVerifiedToken memo = tokens[slot];
+
+        long authorization;
+        if (memo != null && hashes[slot] == hash && sameClaims(memo, verified))
+        {
+            authorization = authorizations[slot];
+        }
+        else
+        {
+            authorization = table.lookup(verified);
+            hashes[slot] = hash;
+            tokens[slot] = verified;
+            authorizations[slot] = authorization;
+        }
+
+        return authorization;
+    }
+
+    private static int hash(
+        OAuthVerifiedToken verified)
+    {
+        final byte[] scope = verified.scope();
+
+        int hash = Objects.hashCode(verified.kid());
+        hash = 31 * hash + System.identityHashCode(verified.key());
+        hash = 31 * hash + Objects.hashCode(verified.issuer());
+        hash = 31 * hash + verified.audiences().hashCode();
+        hash = 31 * hash + OAuthKeyDirectory.hash(scope, 0, scope.length);
+        return hash;
+    }
+
+    private static boolean sameClaims(
+        OAuthVerifiedToken memo,
+        OAuthVerifiedToken verified)
+    {
+        return memo == verified ||
+               memo.key() == verified.key() &&
+               Objects.equals(memo.kid(), verified.kid()) &&
+               Objects.equals(memo.issuer(), verified.issuer()) &&
+               memo.audiences().equals(verified.audiences()) &&
+               Arrays.equals(memo.scope(), verified.scope());
+    }
+}
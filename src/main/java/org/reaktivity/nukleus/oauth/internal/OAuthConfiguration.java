@@ -23,23 +23,46 @@ public class OAuthConfiguration extends Configuration
     public static final String AUTO_DISCOVER_REALMS_NAME = "nukleus.oauth.auto.discover.realms";
     public static final String CLAIM_NAMESPACE_NAME = "nukleus.oauth.claim.namespace";
     public static final String CLAIM_NAME_CHALLENGE_TIMEOUT_NAME = "nukleus.oauth.claim.name.challenge.timeout";
+    public static final String VERIFY_WORKERS_NAME = "nukleus.oauth.verify.workers";
 
     static final ConfigurationDef OAUTH_CONFIG;
     static final BooleanPropertyDef EXPIRE_IN_FLIGHT_REQUESTS;
     static final PropertyDef<String> KEYS;
+    static final BooleanPropertyDef KEYS_WATCH;
+    static final PropertyDef<String> JWKS_URL;
+    static final LongPropertyDef JWKS_REFRESH_INTERVAL;
+    static final LongPropertyDef JWKS_UNKNOWN_KID_TTL;
     static final BooleanPropertyDef AUTO_DISCOVER_REALMS;
     static final PropertyDef<String> CLAIM_NAMESPACE;
     static final PropertyDef<String> CLAIM_NAME_CHALLENGE_TIMEOUT;
+    static final IntPropertyDef TOKEN_CACHE_CAPACITY;
+    static final IntPropertyDef TOKEN_MAX_LENGTH;
+    static final IntPropertyDef REJECTED_TOKEN_CACHE_CAPACITY;
+    static final LongPropertyDef REJECTED_TOKEN_TTL;
+    static final IntPropertyDef VERIFY_WORKERS;
+    static final IntPropertyDef AUTHORIZATION_MEMO_CAPACITY;
+    static final LongPropertyDef REALM_QUARANTINE;
 
     static
     {
         final ConfigurationDef config = new ConfigurationDef("nukleus.oauth");
         KEYS = config.property("keys", "keys.jwk");
+        KEYS_WATCH = config.property("keys.watch", true);
+        JWKS_URL = config.property("jwks.url", (String) null);
+        JWKS_REFRESH_INTERVAL = config.property("jwks.refresh.interval", 300000L);
+        JWKS_UNKNOWN_KID_TTL = config.property("jwks.unknown.kid.ttl", 30000L);
         EXPIRE_IN_FLIGHT_REQUESTS = config.property("expire.in.flight.requests", true);
         AUTO_DISCOVER_REALMS = config.property("auto.discover.realms", false);
         CLAIM_NAMESPACE = config.property("claim.namespace", "https://reaktivity.org");
         CLAIM_NAME_CHALLENGE_TIMEOUT = config.property("claim.name.challenge.timeout",
                 "challenge_timeout");
+        TOKEN_CACHE_CAPACITY = config.property("token.cache.capacity", 1024);
+        TOKEN_MAX_LENGTH = config.property("token.max.length", 8192);
+        REJECTED_TOKEN_CACHE_CAPACITY = config.property("rejected.token.cache.capacity", 1024);
+        REJECTED_TOKEN_TTL = config.property("rejected.token.ttl", 5000L);
+        VERIFY_WORKERS = config.property("verify.workers", 0);
+        AUTHORIZATION_MEMO_CAPACITY = config.property("authorization.memo.capacity", 256);
+        REALM_QUARANTINE = config.property("realm.quarantine", 60000L);
         OAUTH_CONFIG = config;
     }
 
@@ -54,6 +77,26 @@ public class OAuthConfiguration extends Configuration
         return KEYS.get(this);
     }
 
+    public boolean keysWatch()
+    {
+        return KEYS_WATCH.getAsBoolean(this);
+    }
+
+    public String jwksUrl()
+    {
+        return JWKS_URL.get(this);
+    }
+
+    public long jwksRefreshInterval()
+    {
+        return JWKS_REFRESH_INTERVAL.getAsLong(this);
+    }
+
+    public long jwksUnknownKidTtl()
+    {
+        return JWKS_UNKNOWN_KID_TTL.getAsLong(this);
+    }
+
     public boolean expireInFlightRequests()
     {
         return EXPIRE_IN_FLIGHT_REQUESTS.getAsBoolean(this);
@@ -74,9 +117,49 @@ public class OAuthConfiguration extends Configuration
         return CLAIM_NAME_CHALLENGE_TIMEOUT.get(this);
     }
 
+    public int tokenCacheCapacity()
+    {
+        return TOKEN_CACHE_CAPACITY.getAsInt(this);
+    }
+
+    public int tokenMaxLength()
+    {
+        return TOKEN_MAX_LENGTH.getAsInt(this);
+    }
+
+    public int rejectedTokenCacheCapacity()
+    {
+        return REJECTED_TOKEN_CACHE_CAPACITY.getAsInt(this);
+    }
+
+    public long rejectedTokenTtl()
+    {
+        return REJECTED_TOKEN_TTL.getAsLong(this);
+    }
+
+    public int verifyWorkers()
+    {
+        return VERIFY_WORKERS.getAsInt(this);
+    }
+
+    public int authorizationMemoCapacity()
+    {
+        return AUTHORIZATION_MEMO_CAPACITY.getAsInt(this);
+    }
+
+    public long realmQuarantine()
+    {
+        return REALM_QUARANTINE.getAsLong(this);
+    }
+
     public String getCanonicalClaimNamespace()
     {
         final String namespace = getClaimNamespace();
         return namespace.endsWith("/") ? namespace : String.format("%s/", namespace);
     }
+
+    public String getCanonicalClaimNameChallengeTimeout()
+    {
+        return String.format("%s%s", getCanonicalClaimNamespace(), getClaimNameChallengeTimeout());
+    }
 }
@@ -31,6 +31,7 @@ import org.reaktivity.nukleus.oauth.internal.types.Flyweight;
 import org.reaktivity.nukleus.oauth.internal.types.OctetsFW;
 import org.reaktivity.nukleus.oauth.internal.types.control.FreezeFW;
 import org.reaktivity.nukleus.oauth.internal.types.control.OAuthResolveExFW;
+import org.reaktivity.nukleus.oauth.internal.types.control.OAuthUpdateKeysFW;
 import org.reaktivity.nukleus.oauth.internal.types.control.ResolveFW;
 import org.reaktivity.nukleus.oauth.internal.types.control.Role;
 import org.reaktivity.nukleus.oauth.internal.types.control.RouteFW;
@@ -46,6 +47,7 @@ import com.google.gson.JsonParser;
 public class OAuthController implements Controller
 {
     private static final int MAX_SEND_LENGTH = 1024; // TODO: Configuration and Context
+    private static final int MAX_KEYS_LENGTH = 0xffff;
 
     private static final String[] EMPTY_STRING_ARRAY = new String[0];
 
@@ -56,12 +58,14 @@ public class OAuthController implements Controller
     private final RouteFW.Builder routeRW = new RouteFW.Builder();
     private final UnrouteFW.Builder unrouteRW = new UnrouteFW.Builder();
     private final FreezeFW.Builder freezeRW = new FreezeFW.Builder();
+    private final OAuthUpdateKeysFW.Builder updateKeysRW = new OAuthUpdateKeysFW.Builder();
 
     private final OctetsFW extensionRO = new OctetsFW().wrap(new UnsafeBuffer(new byte[0]), 0, 0);
 
     private final ControllerSpi controllerSpi;
     private final AtomicBuffer commandBuffer;
     private final AtomicBuffer extensionBuffer;
+    private final AtomicBuffer updateKeysBuffer;
 
     private final Gson gson;
 
@@ -71,6 +75,7 @@ public class OAuthController implements Controller
         this.controllerSpi = controllerSpi;
         this.commandBuffer = new UnsafeBuffer(allocateDirect(MAX_SEND_LENGTH).order(nativeOrder()));
         this.extensionBuffer = new UnsafeBuffer(allocateDirect(MAX_SEND_LENGTH).order(nativeOrder()));
+        this.updateKeysBuffer = new UnsafeBuffer(allocateDirect(MAX_SEND_LENGTH + MAX_KEYS_LENGTH).order(nativeOrder()));
         gson = new Gson();
     }
 
@@ -162,6 +167,34 @@ public class OAuthController implements Controller
         return controllerSpi.doUnresolve(unresolveRO.typeId(), unresolveRO.buffer(), unresolveRO.offset(), unresolveRO.sizeof());
     }
 
+    public CompletableFuture<Void> updateKeys(
+        String jwks)
+    {
+        final CompletableFuture<Void> promise;
+
+        if (jwks.getBytes(UTF_8).length > MAX_KEYS_LENGTH)
+        {
+            promise = new CompletableFuture<>();
+            promise.completeExceptionally(new IllegalArgumentException("key set exceeds " + MAX_KEYS_LENGTH + " bytes"));
+        }
+        else
+        {
+            long correlationId = controllerSpi.nextCorrelationId();
+
+            OAuthUpdateKeysFW updateKeysRO = updateKeysRW.wrap(updateKeysBuffer, 0, updateKeysBuffer.capacity())
+                                                         .correlationId(correlationId)
+                                                         .nukleus(name())
+                                                         .keys(jwks)
+                                                         .build();
+
+            // no dedicated ControllerSpi method, replied to with Unresolved or Error like unresolve
+            promise = controllerSpi.doUnresolve(updateKeysRO.typeId(), updateKeysRO.buffer(), updateKeysRO.offset(),
+                    updateKeysRO.sizeof());
+        }
+
+        return promise;
+    }
+
     @Deprecated
     public CompletableFuture<Long> routeProxy(
         String localAddress,
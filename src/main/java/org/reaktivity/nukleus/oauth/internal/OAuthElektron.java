@@ -19,13 +19,11 @@ import static java.util.Collections.singletonMap;
 import static org.reaktivity.nukleus.route.RouteKind.PROXY;
 
 import java.util.Map;
-import java.util.function.Function;
 import java.util.function.ToLongFunction;
 
-import org.jose4j.jwk.JsonWebKey;
-import org.jose4j.jws.JsonWebSignature;
 import org.reaktivity.nukleus.Elektron;
 import org.reaktivity.nukleus.oauth.internal.stream.OAuthProxyFactoryBuilder;
+import org.reaktivity.nukleus.oauth.internal.stream.OAuthTokenVerifierPool;
 import org.reaktivity.nukleus.route.RouteKind;
 import org.reaktivity.nukleus.stream.StreamFactoryBuilder;
 
@@ -35,10 +33,12 @@ final class OAuthElektron implements Elektron
 
     OAuthElektron(
         OAuthConfiguration config,
-        ToLongFunction<JsonWebSignature> lookupAuthorization,
-        Function<String, JsonWebKey> lookupKey)
+        ToLongFunction<OAuthVerifiedToken> lookupAuthorization,
+        OAuthKeyLookup lookupKey,
+        OAuthTokenVerifierPool verifierPool)
     {
-        this.streamFactoryBuilders = singletonMap(PROXY, new OAuthProxyFactoryBuilder(config, lookupAuthorization, lookupKey));
+        this.streamFactoryBuilders = singletonMap(PROXY,
+                new OAuthProxyFactoryBuilder(config, lookupAuthorization, lookupKey, verifierPool));
     }
 
     @Override
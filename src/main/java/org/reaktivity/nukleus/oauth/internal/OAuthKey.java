@@ -0,0 +1,361 @@
+/**
+ * Copyright 2016-2021 The Reaktivity Project
+ *
+ * The Reaktivity Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package org.reaktivity.nukleus.oauth.internal;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.agrona.LangUtil.rethrowUnchecked;
+
+import java.security.GeneralSecurityException;
+import java.security.Key;
+import java.security.NoSuchAlgorithmException;
+import java.security.PublicKey;
+import java.security.Signature;
+import java.security.interfaces.ECPublicKey;
+import java.security.interfaces.RSAPublicKey;
+import java.util.Objects;
+import java.util.function.Supplier;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+import org.jose4j.jwk.JsonWebKey;
+
+public final class OAuthKey
+{
+    private static final int MIN_RSA_KEY_SIZE = 2048;
+
+    private final String kid;
+    private final int kidHash;
+    private final String algorithm;
+    private final JsonWebKey jwk;
+    private final Key key;
+    private final ThreadLocal<Verifier> verifiers;
+
+    private volatile boolean revoked;
+
+    private OAuthKey(
+        JsonWebKey jwk,
+        Supplier<Verifier> supplyVerifier)
+    {
+        this.kid = jwk.getKeyId();
+        this.kidHash = kid != null ? OAuthKeyDirectory.hash(kid.getBytes(UTF_8)) : 0;
+        this.algorithm = jwk.getAlgorithm();
+        this.jwk = jwk;
+        this.key = jwk.getKey();
+        this.verifiers = supplyVerifier != null ? ThreadLocal.withInitial(supplyVerifier) : null;
+    }
+
+    public String kid()
+    {
+        return kid;
+    }
+
+    int kidHash()
+    {
+        return kidHash;
+    }
+
+    public boolean isRevoked()
+    {
+        return revoked;
+    }
+
+    void revoke()
+    {
+        revoked = true;
+    }
+
+    boolean isEquivalentTo(
+        OAuthKey that)
+    {
+        return Objects.equals(this.kid, that.kid) &&
+               Objects.equals(this.algorithm, that.algorithm) &&
+               Objects.equals(this.key, that.key);
+    }
+
+    public String algorithm()
+    {
+        return algorithm;
+    }
+
+    public JsonWebKey jwk()
+    {
+        return jwk;
+    }
+
+    public Key key()
+    {
+        return key;
+    }
+
+    public boolean canVerify()
+    {
+        return verifiers != null;
+    }
+
+    public boolean verify(
+        byte[] signingInput,
+        int signingInputLength,
+        byte[] signature,
+        int signatureLength)
+    {
+        return verifiers.get().verify(signingInput, signingInputLength, signature, signatureLength);
+    }
+
+    @Override
+    public String toString()
+    {
+        return String.format("kid=\"%s\", alg=\"%s\"", kid, algorithm);
+    }
+
+    public static OAuthKey of(
+        JsonWebKey jwk)
+    {
+        final String algorithm = jwk.getAlgorithm();
+        final Key key = jwk.getKey();
+
+        Supplier<Verifier> supplyVerifier = null;
+        switch (algorithm)
+        {
+        case "RS256":
+        case "RS384":
+        case "RS512":
+            supplyVerifier = supplyRsaVerifier(key, "SHA" + algorithm.substring(2) + "withRSA");
+            break;
+        case "ES256":
+            supplyVerifier = supplyEcdsaVerifier(key, "SHA256withECDSAinP1363Format", 256);
+            break;
+        case "ES384":
+            supplyVerifier = supplyEcdsaVerifier(key, "SHA384withECDSAinP1363Format", 384);
+            break;
+        case "ES512":
+            supplyVerifier = supplyEcdsaVerifier(key, "SHA512withECDSAinP1363Format", 521);
+            break;
+        case "HS256":
+        case "HS384":
+        case "HS512":
+            supplyVerifier = supplyMacVerifier(key, "HmacSHA" + algorithm.substring(2), Integer.parseInt(algorithm.substring(2)));
+            break;
+        default:
+            break;
+        }
+
+        return new OAuthKey(jwk, supplyVerifier);
+    }
+
+    private static Supplier<Verifier> supplyRsaVerifier(
+        Key key,
+        String signatureAlgorithm)
+    {
+        Supplier<Verifier> supplyVerifier = null;
+
+        if (key instanceof RSAPublicKey && isSupported(signatureAlgorithm))
+        {
+            final RSAPublicKey publicKey = (RSAPublicKey) key;
+            supplyVerifier = publicKey.getModulus().bitLength() >= MIN_RSA_KEY_SIZE
+                    ? () -> new SignatureVerifier(signatureAlgorithm, publicKey)
+                    : () -> Verifier.REJECT;
+        }
+
+        return supplyVerifier;
+    }
+
+    private static Supplier<Verifier> supplyEcdsaVerifier(
+        Key key,
+        String signatureAlgorithm,
+        int fieldSize)
+    {
+        Supplier<Verifier> supplyVerifier = null;
+
+        if (key instanceof ECPublicKey && isSupported(signatureAlgorithm))
+        {
+            final ECPublicKey publicKey = (ECPublicKey) key;
+            supplyVerifier = publicKey.getParams().getCurve().getField().getFieldSize() == fieldSize
+                    ? () -> new SignatureVerifier(signatureAlgorithm, publicKey)
+                    : () -> Verifier.REJECT;
+        }
+
+        return supplyVerifier;
+    }
+
+    private static Supplier<Verifier> supplyMacVerifier(
+        Key key,
+        String macAlgorithm,
+        int minKeySize)
+    {
+        Supplier<Verifier> supplyVerifier = null;
+
+        final byte[] secret = key != null ? key.getEncoded() : null;
+        if (secret != null && isMacSupported(macAlgorithm))
+        {
+            final SecretKeySpec secretKey = new SecretKeySpec(secret, macAlgorithm);
+            supplyVerifier = secret.length * Byte.SIZE >= minKeySize
+                    ? () -> new MacVerifier(macAlgorithm, secretKey)
+                    : () -> Verifier.REJECT;
+        }
+
+        return supplyVerifier;
+    }
+
+    private static boolean isSupported(
+        String signatureAlgorithm)
+    {
+        boolean supported = false;
+
+        try
+        {
+            Signature.getInstance(signatureAlgorithm);
+            supported = true;
+        }
+        catch (NoSuchAlgorithmException ex)
+        {
+            // fall back to jose4j
+        }
+
+        return supported;
+    }
+
+    private static boolean isMacSupported(
+        String macAlgorithm)
+    {
+        boolean supported = false;
+
+        try
+        {
+            Mac.getInstance(macAlgorithm);
+            supported = true;
+        }
+        catch (NoSuchAlgorithmException ex)
+        {
+            // fall back to jose4j
+        }
+
+        return supported;
+    }
+
+    @FunctionalInterface
+    private interface Verifier
+    {
+        Verifier REJECT = (i, il, s, sl) -> false;
+
+        boolean verify(
+            byte[] signingInput,
+            int signingInputLength,
+            byte[] signature,
+            int signatureLength);
+    }
+
+    private static final class SignatureVerifier implements Verifier
+    {
+        private final Signature verifier;
+
+        private SignatureVerifier(
+            String signatureAlgorithm,
+            PublicKey publicKey)
+        {
+            Signature verifier = null;
+
+            try
+            {
+                verifier = Signature.getInstance(signatureAlgorithm);
+                verifier.initVerify(publicKey);
+            }
+            catch (GeneralSecurityException ex)
+            {
+                rethrowUnchecked(ex);
+            }
+
+            this.verifier = verifier;
+        }
+
+        @Override
+        public boolean verify(
+            byte[] signingInput,
+            int signingInputLength,
+            byte[] signature,
+            int signatureLength)
+        {
+            boolean verified = false;
+
+            try
+            {
+                verifier.update(signingInput, 0, signingInputLength);
+                verified = verifier.verify(signature, 0, signatureLength);
+            }
+            catch (GeneralSecurityException ex)
+            {
+                // invalid signature, verifier is reset by verify
+            }
+
+            return verified;
+        }
+    }
+
+    private static final class MacVerifier implements Verifier
+    {
+        private final Mac mac;
+        private final byte[] digest;
+
+        private MacVerifier(
+            String macAlgorithm,
+            SecretKeySpec secretKey)
+        {
+            Mac mac = null;
+
+            try
+            {
+                mac = Mac.getInstance(macAlgorithm);
+                mac.init(secretKey);
+            }
+            catch (GeneralSecurityException ex)
+            {
+                rethrowUnchecked(ex);
+            }
+
+            this.mac = mac;
+            this.digest = new byte[mac.getMacLength()];
+        }
+
+        @Override
+        public boolean verify(
+            byte[] signingInput,
+            int signingInputLength,
+            byte[] signature,
+            int signatureLength)
+        {
+            boolean verified = false;
+
+            try
+            {
+                mac.update(signingInput, 0, signingInputLength);
+                mac.doFinal(digest, 0);
+
+                int difference = signatureLength ^ digest.length;
+                for (int index = 0; index < digest.length; index++)
+                {
+                    difference |= digest[index] ^ signature[index < signatureLength ? index : 0];
+                }
+                verified = difference == 0;
+            }
+            catch (GeneralSecurityException ex)
+            {
+                mac.reset();
+            }
+
+            return verified;
+        }
+    }
+}
@@ -0,0 +1,169 @@
+/**
+ * Copyright 2016-2021 The Reaktivity Project
+ *
+ * The Reaktivity Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package org.reaktivity.nukleus.oauth.internal;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.agrona.BitUtil.findNextPositivePowerOfTwo;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+import org.agrona.DirectBuffer;
+
+final class OAuthKeyDirectory
+{
+    static final int NO_INDEX = -1;
+
+    private final int mask;
+    private final int[] hashes;
+    private final byte[][] kids;
+    private final OAuthKey[] keys;
+
+    OAuthKeyDirectory(
+        Collection<OAuthKey> keys)
+    {
+        final int capacity = findNextPositivePowerOfTwo(Math.max(keys.size() << 1, 2));
+        this.mask = capacity - 1;
+        this.hashes = new int[capacity];
+        this.kids = new byte[capacity][];
+        this.keys = new OAuthKey[capacity];
+
+        for (OAuthKey key : keys)
+        {
+            final byte[] kid = key.kid().getBytes(UTF_8);
+            int index = key.kidHash() & mask;
+            while (this.kids[index] != null)
+            {
+                index = (index + 1) & mask;
+            }
+
+            this.hashes[index] = key.kidHash();
+            this.kids[index] = kid;
+            this.keys[index] = key;
+        }
+    }
+
+    int capacity()
+    {
+        return keys.length;
+    }
+
+    OAuthKey key(
+        int index)
+    {
+        return keys[index];
+    }
+
+    int indexOf(
+        OAuthKey key)
+    {
+        final int hash = key.kidHash();
+
+        int index = hash & mask;
+        while (keys[index] != null && keys[index] != key)
+        {
+            index = (index + 1) & mask;
+        }
+
+        return keys[index] != null ? index : NO_INDEX;
+    }
+
+    int indexOf(
+        DirectBuffer buffer,
+        int offset,
+        int length)
+    {
+        final int hash = hash(buffer, offset, length);
+
+        int index = hash & mask;
+        while (kids[index] != null && (hashes[index] != hash || !equals(kids[index], buffer, offset, length)))
+        {
+            index = (index + 1) & mask;
+        }
+
+        return kids[index] != null ? index : NO_INDEX;
+    }
+
+    int indexOf(
+        String kid)
+    {
+        final byte[] bytes = kid.getBytes(UTF_8);
+        final int hash = hash(bytes);
+
+        int index = hash & mask;
+        while (kids[index] != null && (hashes[index] != hash || !Arrays.equals(kids[index], bytes)))
+        {
+            index = (index + 1) & mask;
+        }
+
+        return kids[index] != null ? index : NO_INDEX;
+    }
+
+    static int hash(
+        byte[] kid)
+    {
+        return hash(kid, 0, kid.length);
+    }
+
+    static int hash(
+        byte[] bytes,
+        int offset,
+        int length)
+    {
+        int hash = 0;
+        for (int index = 0; index < length; index++)
+        {
+            hash = 31 * hash + bytes[offset + index];
+        }
+        return mix(hash);
+    }
+
+    static int hash(
+        DirectBuffer buffer,
+        int offset,
+        int length)
+    {
+        int hash = 0;
+        for (int index = 0; index < length; index++)
+        {
+            hash = 31 * hash + buffer.getByte(offset + index);
+        }
+        return mix(hash);
+    }
+
+    private static int mix(
+        int hash)
+    {
+        final int mixed = hash * 0x9E3779B9;
+        return mixed ^ (mixed >>> 16);
+    }
+
+    private static boolean equals(
+        byte[] kid,
+        DirectBuffer buffer,
+        int offset,
+        int length)
+    {
+        boolean equals = kid.length == length;
+
+        for (int index = 0; equals && index < length; index++)
+        {
+            equals = kid[index] == buffer.getByte(offset + index);
+        }
+
+        return equals;
+    }
+}
@@ -0,0 +1,125 @@
+/**
+ * Copyright 2016-2021 The Reaktivity Project
+ *
+ * The Reaktivity Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package org.reaktivity.nukleus.oauth.internal;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+import static java.nio.file.StandardWatchEventKinds.OVERFLOW;
+import static org.agrona.LangUtil.rethrowUnchecked;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.Map;
+import java.util.function.Consumer;
+
+final class OAuthKeyFileWatcher implements AutoCloseable
+{
+    private final Path keyFile;
+    private final Consumer<Map<String, OAuthKey>> onKeysChanged;
+    private final WatchService watcher;
+    private final Thread thread;
+
+    private OAuthKeyFileWatcher(
+        Path keyFile,
+        Consumer<Map<String, OAuthKey>> onKeysChanged,
+        WatchService watcher)
+    {
+        this.keyFile = keyFile;
+        this.onKeysChanged = onKeysChanged;
+        this.watcher = watcher;
+        this.thread = new Thread(this::run, "oauth-keys-watcher");
+        this.thread.setDaemon(true);
+    }
+
+    @Override
+    public void close() throws Exception
+    {
+        watcher.close();
+        thread.join();
+    }
+
+    static OAuthKeyFileWatcher watch(
+        Path keyFile,
+        Consumer<Map<String, OAuthKey>> onKeysChanged)
+    {
+        final Path keyDirectory = keyFile.toAbsolutePath().getParent();
+
+        OAuthKeyFileWatcher keyWatcher = null;
+
+        if (keyDirectory != null && Files.isDirectory(keyDirectory))
+        {
+            try
+            {
+                final WatchService watcher = keyDirectory.getFileSystem().newWatchService();
+                keyDirectory.register(watcher, ENTRY_CREATE, ENTRY_MODIFY);
+                keyWatcher = new OAuthKeyFileWatcher(keyFile, onKeysChanged, watcher);
+                keyWatcher.thread.start();
+            }
+            catch (IOException ex)
+            {
+                rethrowUnchecked(ex);
+            }
+        }
+
+        return keyWatcher;
+    }
+
+    private void run()
+    {
+        try
+        {
+            for (WatchKey key = watcher.take(); key != null; key = watcher.take())
+            {
+                boolean changed = false;
+                for (WatchEvent<?> event : key.pollEvents())
+                {
+                    changed |= event.kind() == OVERFLOW || keyFile.getFileName().equals(event.context());
+                }
+                key.reset();
+
+                if (changed)
+                {
+                    onKeyFileChanged();
+                }
+            }
+        }
+        catch (ClosedWatchServiceException | InterruptedException ex)
+        {
+            // closed
+        }
+    }
+
+    private void onKeyFileChanged()
+    {
+        // key file may be partially written or briefly absent during replacement, keep current keys until it parses
+        if (Files.exists(keyFile))
+        {
+            try
+            {
+                onKeysChanged.accept(OAuthRealms.parseKeyMap(keyFile));
+            }
+            catch (Exception ex)
+            {
+                // invalid keys
+            }
+        }
+    }
+}
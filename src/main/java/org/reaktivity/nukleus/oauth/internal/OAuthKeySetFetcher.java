@@ -0,0 +1,194 @@
+/**
+ * Copyright 2016-2021 The Reaktivity Project
+ *
+ * The Reaktivity Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package org.reaktivity.nukleus.oauth.internal;
+
+import static java.net.HttpURLConnection.HTTP_OK;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Consumer;
+import java.util.function.LongSupplier;
+
+import org.agrona.DirectBuffer;
+
+final class OAuthKeySetFetcher implements AutoCloseable
+{
+    private static final int CONNECT_TIMEOUT_MILLIS = 5000;
+    private static final int READ_TIMEOUT_MILLIS = 5000;
+    private static final long MIN_REFETCH_INTERVAL_MILLIS = 1000L;
+    private static final int UNKNOWN_KIDS_CAPACITY = 1024;
+
+    private final URL url;
+    private final long refreshInterval;
+    private final long unknownKidTtl;
+    private final LongSupplier clock;
+    private final Consumer<Map<String, OAuthKey>> onKeysChanged;
+    private final ScheduledExecutorService executor;
+    private final AtomicBoolean refetching;
+    private final AtomicIntegerArray unknownKidHashes;
+    private final AtomicLongArray unknownKidExpiresAt;
+
+    private volatile long nextRefetchAt;
+
+    // only accessed by fetches, which all run on the executor thread
+    private String etag;
+    private String lastModified;
+
+    OAuthKeySetFetcher(
+        URL url,
+        long refreshInterval,
+        long unknownKidTtl,
+        LongSupplier clock,
+        Consumer<Map<String, OAuthKey>> onKeysChanged)
+    {
+        this.url = url;
+        this.refreshInterval = refreshInterval;
+        this.unknownKidTtl = unknownKidTtl;
+        this.clock = clock;
+        this.onKeysChanged = onKeysChanged;
+        this.executor = Executors.newSingleThreadScheduledExecutor(r ->
+        {
+            final Thread thread = new Thread(r, "oauth-jwks-fetcher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.refetching = new AtomicBoolean();
+        this.unknownKidHashes = new AtomicIntegerArray(UNKNOWN_KIDS_CAPACITY);
+        this.unknownKidExpiresAt = new AtomicLongArray(UNKNOWN_KIDS_CAPACITY);
+    }
+
+    void start()
+    {
+        if (refreshInterval > 0L)
+        {
+            executor.scheduleWithFixedDelay(this::fetch, 0L, refreshInterval, MILLISECONDS);
+        }
+        else
+        {
+            executor.execute(this::fetch);
+        }
+    }
+
+    @Override
+    public void close() throws Exception
+    {
+        executor.shutdownNow();
+
+        // an in-flight fetch is not interruptible, but is bounded by the connect and read timeouts
+        executor.awaitTermination(CONNECT_TIMEOUT_MILLIS + READ_TIMEOUT_MILLIS, MILLISECONDS);
+    }
+
+    void onUnknownKey(
+        DirectBuffer kid,
+        int offset,
+        int length)
+    {
+        final long now = clock.getAsLong();
+        final int hash = OAuthKeyDirectory.hash(kid, offset, length);
+        final int index = hash & (UNKNOWN_KIDS_CAPACITY - 1);
+
+        // racing elektrons at worst trigger one extra refetch or skip one, both benign
+        if (unknownKidHashes.get(index) != hash || now >= unknownKidExpiresAt.get(index))
+        {
+            unknownKidHashes.set(index, hash);
+            unknownKidExpiresAt.set(index, now + unknownKidTtl);
+
+            if (now >= nextRefetchAt && refetching.compareAndSet(false, true))
+            {
+                nextRefetchAt = now + MIN_REFETCH_INTERVAL_MILLIS;
+
+                try
+                {
+                    executor.execute(this::refetch);
+                }
+                catch (RejectedExecutionException ex)
+                {
+                    refetching.set(false);
+                }
+            }
+        }
+    }
+
+    private void refetch()
+    {
+        try
+        {
+            fetch();
+        }
+        finally
+        {
+            refetching.set(false);
+        }
+    }
+
+    private void fetch()
+    {
+        try
+        {
+            final HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+            connection.setConnectTimeout(CONNECT_TIMEOUT_MILLIS);
+            connection.setReadTimeout(READ_TIMEOUT_MILLIS);
+            connection.setRequestProperty("Accept", "application/json");
+
+            if (etag != null)
+            {
+                connection.setRequestProperty("If-None-Match", etag);
+            }
+
+            if (lastModified != null)
+            {
+                connection.setRequestProperty("If-Modified-Since", lastModified);
+            }
+
+            if (connection.getResponseCode() == HTTP_OK)
+            {
+                try (InputStream input = connection.getInputStream())
+                {
+                    final String keysAsJwkSet = new String(input.readAllBytes(), UTF_8);
+                    final Map<String, OAuthKey> keysByKid = OAuthRealms.toKeyMap(keysAsJwkSet);
+
+                    etag = connection.getHeaderField("ETag");
+                    lastModified = connection.getHeaderField("Last-Modified");
+
+                    onKeysChanged.accept(keysByKid);
+                }
+            }
+            else
+            {
+                // not modified or failed, keep current keys
+                final InputStream error = connection.getErrorStream();
+                if (error != null)
+                {
+                    error.close();
+                }
+            }
+        }
+        catch (Exception ex)
+        {
+            // unreachable or invalid key set, keep current keys
+        }
+    }
+}
@@ -15,6 +15,10 @@
  */
 package org.reaktivity.nukleus.oauth.internal;
 
+import static org.agrona.LangUtil.rethrowUnchecked;
+
+import java.net.MalformedURLException;
+import java.net.URL;
 import java.nio.file.Path;
 import java.util.LinkedList;
 import java.util.List;
@@ -23,13 +27,14 @@ import java.util.Map;
 import org.agrona.DirectBuffer;
 import org.agrona.MutableDirectBuffer;
 import org.agrona.collections.Int2ObjectHashMap;
-import org.jose4j.jwk.JsonWebKey;
 import org.reaktivity.nukleus.Nukleus;
 import org.reaktivity.nukleus.function.CommandHandler;
 import org.reaktivity.nukleus.function.MessageConsumer;
+import org.reaktivity.nukleus.oauth.internal.stream.OAuthTokenVerifierPool;
 import org.reaktivity.nukleus.oauth.internal.types.Array32FW;
 import org.reaktivity.nukleus.oauth.internal.types.String8FW;
 import org.reaktivity.nukleus.oauth.internal.types.control.ErrorFW;
+import org.reaktivity.nukleus.oauth.internal.types.control.OAuthUpdateKeysFW;
 import org.reaktivity.nukleus.oauth.internal.types.control.OAuthResolveExFW;
 import org.reaktivity.nukleus.oauth.internal.types.control.ResolveFW;
 import org.reaktivity.nukleus.oauth.internal.types.control.ResolvedFW;
@@ -45,19 +50,26 @@ final class OAuthNukleus implements Nukleus
     private final ResolvedFW.Builder resolvedRW = new ResolvedFW.Builder();
     private final UnresolveFW unresolveRO = new UnresolveFW();
     private final UnresolvedFW.Builder unresolvedRW = new UnresolvedFW.Builder();
+    private final OAuthUpdateKeysFW updateKeysRO = new OAuthUpdateKeysFW();
     private final ErrorFW.Builder errorRW = new ErrorFW.Builder();
 
     private final OAuthConfiguration config;
     private final OAuthRealms realms;
     private final Int2ObjectHashMap<CommandHandler> commandHandlers;
+    private final OAuthKeyFileWatcher keyWatcher;
+    private final OAuthKeySetFetcher keySetFetcher;
+    private final OAuthKeyLookup lookupKey;
+    private final OAuthTokenVerifierPool verifierPool;
+
+    private Map<String, OAuthKey> keysByKid;
 
     OAuthNukleus(
         OAuthConfiguration config)
     {
         this.config = config;
         final Path keyFile = config.directory().resolve(name()).resolve(config.keyFileName());
-        final Map<String, JsonWebKey> keysByKid = OAuthRealms.parseKeyMap(keyFile);
-        final OAuthRealms realms = new OAuthRealms(keysByKid);
+        final Map<String, OAuthKey> keysByKid = OAuthRealms.parseKeyMap(keyFile);
+        final OAuthRealms realms = new OAuthRealms(keysByKid, System::currentTimeMillis, config.realmQuarantine());
 
         if (config.autoDiscoverRealms())
         {
@@ -67,9 +79,17 @@ final class OAuthNukleus implements Nukleus
         final Int2ObjectHashMap<CommandHandler> commandHandlers = new Int2ObjectHashMap<>();
         commandHandlers.put(ResolveFW.TYPE_ID, this::onResolve);
         commandHandlers.put(UnresolveFW.TYPE_ID, this::onUnresolve);
+        commandHandlers.put(OAuthUpdateKeysFW.TYPE_ID, this::onUpdateKeys);
 
         this.realms = realms;
         this.commandHandlers = commandHandlers;
+        this.keysByKid = keysByKid;
+
+        final String jwksUrl = config.jwksUrl();
+        this.keyWatcher = jwksUrl == null && config.keysWatch() ? OAuthKeyFileWatcher.watch(keyFile, this::onKeysChanged) : null;
+        this.keySetFetcher = jwksUrl != null ? newKeySetFetcher(jwksUrl) : null;
+        this.lookupKey = keySetFetcher != null ? new OAuthFetchingKeyLookup() : realms;
+        this.verifierPool = config.verifyWorkers() > 0 ? new OAuthTokenVerifierPool(config, lookupKey) : null;
     }
 
     @Override
@@ -94,7 +114,64 @@ final class OAuthNukleus implements Nukleus
     @Override
     public OAuthElektron supplyElektron()
     {
-        return new OAuthElektron(config, realms::lookup, realms::lookupKey);
+        final OAuthAuthorizationMemo lookupAuthorization = new OAuthAuthorizationMemo(realms, config.authorizationMemoCapacity());
+        return new OAuthElektron(config, lookupAuthorization, lookupKey, verifierPool);
+    }
+
+    @Override
+    public void close() throws Exception
+    {
+        if (keyWatcher != null)
+        {
+            keyWatcher.close();
+        }
+
+        if (keySetFetcher != null)
+        {
+            keySetFetcher.close();
+        }
+
+        if (verifierPool != null)
+        {
+            verifierPool.close();
+        }
+    }
+
+    private OAuthKeySetFetcher newKeySetFetcher(
+        String jwksUrl)
+    {
+        OAuthKeySetFetcher keySetFetcher = null;
+
+        try
+        {
+            final URL url = new URL(jwksUrl);
+            keySetFetcher = new OAuthKeySetFetcher(url, config.jwksRefreshInterval(), config.jwksUnknownKidTtl(),
+                    System::currentTimeMillis, this::onKeysChanged);
+            keySetFetcher.start();
+        }
+        catch (MalformedURLException ex)
+        {
+            rethrowUnchecked(ex);
+        }
+
+        return keySetFetcher;
+    }
+
+    private synchronized void onKeysChanged(
+        Map<String, OAuthKey> newKeysByKid)
+    {
+        final Map<String, OAuthKey> oldKeysByKid = keysByKid;
+        realms.updateKeys(newKeysByKid);
+
+        if (config.autoDiscoverRealms())
+        {
+            newKeysByKid.keySet()
+                        .stream()
+                        .filter(kid -> !oldKeysByKid.containsKey(kid))
+                        .forEach(realms::resolve);
+        }
+
+        keysByKid = newKeysByKid;
     }
 
     private void onResolve(
@@ -172,4 +249,73 @@ final class OAuthNukleus implements Nukleus
             reply.accept(error.typeId(), error.buffer(), error.offset(), error.sizeof());
         }
     }
+
+    private void onUpdateKeys(
+        DirectBuffer buffer,
+        int index,
+        int length,
+        MessageConsumer reply,
+        MutableDirectBuffer replyBuffer)
+    {
+        final OAuthUpdateKeysFW updateKeys = updateKeysRO.wrap(buffer, index, index + length);
+        final long correlationId = updateKeys.correlationId();
+
+        boolean updated = false;
+
+        // keys fetched from a JWKS URL would overwrite pushed keys on the next refresh
+        if (keySetFetcher == null)
+        {
+            try
+            {
+                onKeysChanged(OAuthRealms.toKeyMap(updateKeys.keys().asString()));
+                updated = true;
+            }
+            catch (Exception ex)
+            {
+                // invalid keys, keep current keys
+            }
+        }
+
+        if (updated)
+        {
+            final UnresolvedFW unresolved = unresolvedRW.wrap(replyBuffer, 0,  replyBuffer.capacity())
+                    .correlationId(correlationId)
+                    .build();
+
+            reply.accept(unresolved.typeId(), unresolved.buffer(), unresolved.offset(), unresolved.sizeof());
+        }
+        else
+        {
+            final ErrorFW error = errorRW.wrap(replyBuffer, 0,  replyBuffer.capacity())
+                    .correlationId(correlationId)
+                    .build();
+
+            reply.accept(error.typeId(), error.buffer(), error.offset(), error.sizeof());
+        }
+    }
+
+    private final class OAuthFetchingKeyLookup implements OAuthKeyLookup
+    {
+        @Override
+        public OAuthKey lookup(
+            DirectBuffer kid,
+            int offset,
+            int length)
+        {
+            final OAuthKey key = realms.lookupKey(kid, offset, length);
+
+            if (key == null)
+            {
+                keySetFetcher.onUnknownKey(kid, offset, length);
+            }
+
+            return key;
+        }
+
+        @Override
+        public long generation()
+        {
+            return realms.generation();
+        }
+    }
 }
@@ -0,0 +1,152 @@
+/**
+ * Copyright 2016-2021 The Reaktivity Project
+ *
+ * The Reaktivity Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package org.reaktivity.nukleus.oauth.internal;
+
+import static org.reaktivity.nukleus.oauth.internal.OAuthKeyDirectory.NO_INDEX;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// immutable snapshot of realm state at one generation, published by OAuthRealms and shared by all elektrons
+final class OAuthRealmTable
+{
+    private static final long NO_AUTHORIZATION = 0L;
+
+    private final long generation;
+    private final OAuthKeyDirectory keys;
+    private final Realm[] realmsByKey;
+    private final Map<String, Realm> realmsByName;
+
+    OAuthRealmTable(
+        long generation,
+        OAuthKeyDirectory keys)
+    {
+        this.generation = generation;
+        this.keys = keys;
+        this.realmsByKey = new Realm[keys.capacity()];
+        this.realmsByName = new HashMap<>();
+    }
+
+    long generation()
+    {
+        return generation;
+    }
+
+    long lookup(
+        OAuthVerifiedToken verified)
+    {
+        final OAuthKey key = verified.key();
+
+        Realm realm;
+        if (key != null)
+        {
+            final int index = keys.indexOf(key);
+            realm = index != NO_INDEX ? realmsByKey[index] : null;
+        }
+        else
+        {
+            realm = realmsByName.get(verified.kid());
+        }
+
+        return realm != null ? realm.lookup(verified.issuer(), verified.audiences(), verified.scope()) : NO_AUTHORIZATION;
+    }
+
+    void add(
+        String realmName,
+        long realmId,
+        int ordinal,
+        String issuerName,
+        String audienceName,
+        OAuthScopeDictionary scopes)
+    {
+        Realm realm = realmsByName.get(realmName);
+        if (realm == null)
+        {
+            realm = new Realm();
+            realmsByName.put(realmName, realm);
+
+            final int index = keys.indexOf(realmName);
+            if (index != NO_INDEX)
+            {
+                realmsByKey[index] = realm;
+            }
+        }
+
+        realm.realmInfosByIssuer.computeIfAbsent(issuerName, i -> new HashMap<>())
+                                .putIfAbsent(audienceName, new RealmInfo(realmId, ordinal, scopes));
+    }
+
+    private static final class Realm
+    {
+        private final Map<String, Map<String, RealmInfo>> realmInfosByIssuer = new HashMap<>();
+
+        private long lookup(
+            String issuerName,
+            List<String> audienceNames,
+            byte[] scope)
+        {
+            RealmInfo realmInfo = lookup(realmInfosByIssuer.get(null), audienceNames, null);
+            if (issuerName != null)
+            {
+                realmInfo = lookup(realmInfosByIssuer.get(issuerName), audienceNames, realmInfo);
+            }
+
+            return realmInfo != null ? realmInfo.realmId | realmInfo.scopes.lookup(scope) : NO_AUTHORIZATION;
+        }
+
+        // wildcard and specific claims may both match, first resolved realm info takes precedence
+        private RealmInfo lookup(
+            Map<String, RealmInfo> realmInfosByAudience,
+            List<String> audienceNames,
+            RealmInfo match)
+        {
+            if (realmInfosByAudience != null)
+            {
+                match = earliest(match, realmInfosByAudience.get(null));
+                for (int i = 0; i < audienceNames.size(); i++)
+                {
+                    match = earliest(match, realmInfosByAudience.get(audienceNames.get(i)));
+                }
+            }
+            return match;
+        }
+
+        private static RealmInfo earliest(
+            RealmInfo match,
+            RealmInfo candidate)
+        {
+            return match == null || candidate != null && candidate.ordinal < match.ordinal ? candidate : match;
+        }
+    }
+
+    private static final class RealmInfo
+    {
+        private final long realmId;
+        private final int ordinal;
+        private final OAuthScopeDictionary scopes;
+
+        private RealmInfo(
+            long realmId,
+            int ordinal,
+            OAuthScopeDictionary scopes)
+        {
+            this.realmId = realmId;
+            this.ordinal = ordinal;
+            this.scopes = scopes;
+        }
+    }
+}
@@ -16,48 +16,75 @@
 package org.reaktivity.nukleus.oauth.internal;
 
 import static java.nio.charset.StandardCharsets.UTF_8;
-import static java.util.Collections.singletonList;
+import static java.util.Collections.singleton;
 import static java.util.Collections.unmodifiableMap;
+import static java.util.Collections.unmodifiableSet;
 import static org.agrona.LangUtil.rethrowUnchecked;
-import static org.jose4j.jwt.ReservedClaimNames.AUDIENCE;
-import static org.jose4j.jwt.ReservedClaimNames.ISSUER;
+import static org.reaktivity.nukleus.oauth.internal.OAuthKeyDirectory.NO_INDEX;
 
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.util.Arrays;
-import java.util.Collection;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
-import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.Set;
+import java.util.function.LongSupplier;
 
+import org.agrona.DirectBuffer;
+import org.agrona.collections.Int2ObjectHashMap;
+import org.agrona.collections.IntArrayQueue;
+import org.agrona.collections.LongArrayQueue;
 import org.jose4j.jwk.JsonWebKey;
 import org.jose4j.jwk.JsonWebKeySet;
-import org.jose4j.jws.JsonWebSignature;
-import org.jose4j.jwt.JwtClaims;
-import org.jose4j.jwt.consumer.InvalidJwtException;
 import org.jose4j.lang.JoseException;
-import org.reaktivity.nukleus.oauth.internal.util.CopyOnWriteHashMap;
 
-public class OAuthRealms
+public class OAuthRealms implements OAuthKeyLookup
 {
     private static final List<String> EMPTY_STRING_LIST = Collections.emptyList();
-    private static final String SCOPE_CLAIM = "scope";
     private static final Long NO_AUTHORIZATION = 0L;
 
-    // To optimize authorization checks we use a single distinct bit per realm and per scope
-    private static final int MAX_REALMS = Short.SIZE;
-
-    private static final long REALM_MASK = 0xFFFF_000000000000L;
-
-    private final Map<String, OAuthRealm> realmsByName = new CopyOnWriteHashMap<>();
-
-    private int nextRealmBit = 0;
-
-    private final Map<String, JsonWebKey> keysByKid;
+    // To optimize authorization checks we use a distinct realm code per realm info and distinct scope bits.
+    // The first 16 realm infos get a single bit of the top 16 bits and a bit per scope name, as before, with
+    // scope name bits shared across the infos of a realm. Later realm infos get a code with 8 of the next 16 bits
+    // set and a bit per scope set in the low 32 bits, so they are not limited by the number of scope names.
+    // Scope name bits above the low 32 bits would overlap those codes, so whichever is needed first rules out
+    // the other, and no realm code covers another in a mask test.
+    private static final int SCOPE_BITS = Integer.SIZE;
+    private static final int LEGACY_SCOPE_BITS = Long.SIZE - Short.SIZE;
+    private static final long REALM_MASK = 0xFFFF_FFFF_00000000L;
+    private static final long LEGACY_REALM_MASK = 0xFFFF_0000_00000000L;
+
+    private static final int LEGACY_REALM_BITS = Short.SIZE;
+    private static final int MIN_LEGACY_REALM_CODE = 1 << Short.SIZE;
+    private static final int REALM_CODE_WEIGHT = Short.SIZE / 2;
+    private static final int MIN_REALM_CODE = (1 << REALM_CODE_WEIGHT) - 1;
+    private static final int MAX_REALM_CODE = MIN_REALM_CODE << (Short.SIZE - REALM_CODE_WEIGHT);
+
+    static final int MAX_REALMS = LEGACY_REALM_BITS + 12870; // 16 + (16 choose 8)
+
+    private static final int NO_REALM_CODE = 0;
+    private static final long DEFAULT_REALM_QUARANTINE_MILLIS = 60000L;
+
+    private final Map<String, OAuthRealm> realmsByName = new HashMap<>();
+    private final Int2ObjectHashMap<OAuthRealm.OAuthRealmInfo> realmInfosByCode = new Int2ObjectHashMap<>();
+    private final IntArrayQueue releasedRealmCodes = new IntArrayQueue();
+    private final LongArrayQueue releasedRealmCodesAt = new LongArrayQueue();
+    private final LongSupplier clock;
+    private final long realmQuarantineMillis;
+
+    private int nextLegacyRealmCode = MIN_LEGACY_REALM_CODE;
+    private int nextRealmCode = MIN_REALM_CODE;
+    private boolean legacyScopeBitsExtended;
+
+    private volatile OAuthKeyDirectory keys;
+    private volatile OAuthRealmTable table;
+    private long generation;
 
     public OAuthRealms()
     {
@@ -65,23 +92,38 @@ public class OAuthRealms
     }
 
     public OAuthRealms(
-        Map<String, JsonWebKey> keysByKid)
+        Map<String, OAuthKey> keysByKid)
     {
-        this.keysByKid = keysByKid;
+        this(keysByKid, System::currentTimeMillis, DEFAULT_REALM_QUARANTINE_MILLIS);
     }
 
-    public long resolve(
+    public OAuthRealms(
+        Map<String, OAuthKey> keysByKid,
+        LongSupplier clock,
+        long realmQuarantineMillis)
+    {
+        this.clock = clock;
+        this.realmQuarantineMillis = realmQuarantineMillis;
+        this.keys = new OAuthKeyDirectory(keysByKid.values());
+        this.table = newTable();
+    }
+
+    public synchronized long resolve(
         String realmName,
         String issuerName,
         String audienceName,
         List<String> scopeNames)
     {
-        long authorization = NO_AUTHORIZATION;
-        if (nextRealmBit < MAX_REALMS)
+        final OAuthRealm realm = realmsByName.computeIfAbsent(realmName, OAuthRealm::new);
+        final long authorization = realm.resolve(issuerName, audienceName, scopeNames);
+
+        if (realm.isEmpty())
         {
-            final OAuthRealm realm = realmsByName.computeIfAbsent(realmName, OAuthRealm::new);
-            authorization = realm.resolve(issuerName, audienceName, scopeNames);
+            realmsByName.remove(realmName, realm);
         }
+
+        publishTable();
+
         return authorization;
     }
 
@@ -91,72 +133,106 @@ public class OAuthRealms
         return resolve(realmName, null, null, EMPTY_STRING_LIST);
     }
 
-    @SuppressWarnings("unchecked")
-    public long lookup(
-        JsonWebSignature verified)
+    public synchronized boolean unresolve(
+        long authorization)
     {
-        final OAuthRealm realm = realmsByName.get(verified.getKeyIdHeaderValue());
-        long authorization = NO_AUTHORIZATION;
-        if (realm != null)
+        final int realmCode = realmCode(authorization);
+        final OAuthRealm.OAuthRealmInfo realmInfo = realmInfosByCode.remove(realmCode);
+
+        if (realmInfo != null)
         {
-            try
+            final OAuthRealm realm = realmInfo.realm();
+            realm.unresolve(realmInfo);
+
+            if (realm.isEmpty())
             {
-                final JwtClaims claims = JwtClaims.parse(verified.getPayload());
-                final Object issuerClaim = claims.getClaimValue(ISSUER);
-                final Object audienceClaim = claims.getClaimValue(AUDIENCE);
-                final Object scopeClaim = claims.getClaimValue(SCOPE_CLAIM);
+                realmsByName.remove(realm.realmName, realm);
+            }
 
-                final String issuerName = issuerClaim != null ? issuerClaim.toString() : null;
+            releaseRealmCode(realmCode);
+            publishTable();
+        }
 
-                List<String> audienceNames = EMPTY_STRING_LIST;
-                if (audienceClaim instanceof List)
-                {
-                    audienceNames = (List<String>) audienceClaim;
-                }
-                else if (audienceClaim instanceof String)
-                {
-                    audienceNames = singletonList((String) audienceClaim);
-                }
+        return realmInfo != null;
+    }
 
-                List<String> scopeNames = EMPTY_STRING_LIST;
-                if (scopeClaim != null)
-                {
-                    scopeNames = Arrays.asList(scopeClaim.toString().split("\\s+"));
-                }
+    // replaced after every resolve, unresolve or key update, invalidating memoized authorizations
+    OAuthRealmTable table()
+    {
+        return table;
+    }
 
-                authorization = realm.lookup(issuerName, audienceNames, scopeNames);
-            }
-            catch (JoseException | InvalidJwtException e)
-            {
-                // TODO: diagnostics?
-            }
-        }
-        return authorization;
+    private void publishTable()
+    {
+        generation++;
+        table = newTable();
     }
 
-    public boolean unresolve(
-        long authorization)
+    private OAuthRealmTable newTable()
+    {
+        final OAuthRealmTable table = new OAuthRealmTable(generation, keys);
+        realmsByName.forEach((realmName, realm) -> realm.realmInfos.forEach(realmInfo ->
+            table.add(realmName, realmInfo.realmId, realmInfo.ordinal, realmInfo.requiredClaims.issuerName,
+                    realmInfo.requiredClaims.audienceName, realmInfo.scopes)));
+        return table;
+    }
+
+    @Override
+    public OAuthKey lookup(
+        DirectBuffer kid,
+        int offset,
+        int length)
+    {
+        return lookupKey(kid, offset, length);
+    }
+
+    @Override
+    public long generation()
+    {
+        return table.generation();
+    }
+
+    public OAuthKey lookupKey(
+        DirectBuffer kid,
+        int offset,
+        int length)
     {
-        final long realmId = authorization & REALM_MASK;
-        final Collection<OAuthRealm> realms = realmsByName.values();
-        final OAuthRealm realm = realms.stream()
-                                       .filter(rs -> rs.unresolve(realmId))
-                                       .findFirst()
-                                       .orElse(null);
-        realms.removeIf(OAuthRealm::isEmpty);
-        return Long.bitCount(realmId) <= 1 && realm != null;
+        final OAuthKeyDirectory keys = this.keys;
+        final int index = keys.indexOf(kid, offset, length);
+        return index != NO_INDEX ? keys.key(index) : null;
     }
 
-    public JsonWebKey lookupKey(
-        String kid)
+    public synchronized void updateKeys(
+        Map<String, OAuthKey> keysByKid)
     {
-        return keysByKid.get(kid);
+        final OAuthKeyDirectory oldKeys = keys;
+
+        final List<OAuthKey> newKeys = new ArrayList<>(keysByKid.size());
+        for (OAuthKey key : keysByKid.values())
+        {
+            final int oldIndex = oldKeys.indexOf(key.kid());
+            final OAuthKey oldKey = oldIndex != NO_INDEX ? oldKeys.key(oldIndex) : null;
+            newKeys.add(oldKey != null && oldKey.isEquivalentTo(key) ? oldKey : key);
+        }
+
+        final OAuthKeyDirectory newKeyDirectory = new OAuthKeyDirectory(newKeys);
+        keys = newKeyDirectory;
+        publishTable();
+
+        for (int index = 0; index < oldKeys.capacity(); index++)
+        {
+            final OAuthKey oldKey = oldKeys.key(index);
+            if (oldKey != null && newKeyDirectory.indexOf(oldKey) == NO_INDEX)
+            {
+                oldKey.revoke();
+            }
+        }
     }
 
-    static Map<String, JsonWebKey> parseKeyMap(
+    static Map<String, OAuthKey> parseKeyMap(
         Path keyFile)
     {
-        Map<String, JsonWebKey> keysByKid = Collections.emptyMap();
+        Map<String, OAuthKey> keysByKid = Collections.emptyMap();
 
         if (Files.exists(keyFile))
         {
@@ -175,10 +251,10 @@ public class OAuthRealms
         return keysByKid;
     }
 
-    private static Map<String, JsonWebKey> toKeyMap(
+    static Map<String, OAuthKey> toKeyMap(
         String keysAsJwkSet)
     {
-        Map<String, JsonWebKey> keysByKid = Collections.emptyMap();
+        Map<String, OAuthKey> keysByKid = Collections.emptyMap();
 
         try
         {
@@ -197,7 +273,7 @@ public class OAuthRealms
                     throw new IllegalArgumentException("Key without alg");
                 }
 
-                final JsonWebKey existingKey = keysByKid.putIfAbsent(kid, key);
+                final OAuthKey existingKey = keysByKid.putIfAbsent(kid, OAuthKey.of(key));
                 if (existingKey != null)
                 {
                     throw new IllegalArgumentException("Key with duplicate kid");
@@ -213,20 +289,71 @@ public class OAuthRealms
         return keysByKid;
     }
 
-    private final class OAuthRealm
+    // released realm codes are only reused once fresh codes run out, and after quarantine has elapsed,
+    // so that stale authorizations on in-flight streams cannot match a different realm
+    private int supplyRealmCode()
+    {
+        int realmCode = NO_REALM_CODE;
+
+        if (nextLegacyRealmCode != NO_REALM_CODE)
+        {
+            realmCode = nextLegacyRealmCode;
+            nextLegacyRealmCode <<= 1;
+        }
+        else if (nextRealmCode <= MAX_REALM_CODE && !legacyScopeBitsExtended)
+        {
+            realmCode = nextRealmCode;
+            nextRealmCode = nextRealmCode(nextRealmCode);
+        }
+        else if (!releasedRealmCodes.isEmpty() &&
+                 releasedRealmCodesAt.peekLong() + realmQuarantineMillis <= clock.getAsLong())
+        {
+            realmCode = releasedRealmCodes.pollInt();
+            releasedRealmCodesAt.pollLong();
+        }
+
+        return realmCode;
+    }
+
+    private void releaseRealmCode(
+        int realmCode)
+    {
+        releasedRealmCodes.offerInt(realmCode);
+        releasedRealmCodesAt.offerLong(clock.getAsLong());
+    }
+
+    private int maxLegacyScopeBits()
+    {
+        return nextRealmCode != MIN_REALM_CODE ? SCOPE_BITS : LEGACY_SCOPE_BITS;
+    }
+
+    public static int realmCode(
+        long authorization)
     {
-        private static final int MAX_SCOPES = 48;
+        final long legacyRealmBits = authorization & LEGACY_REALM_MASK;
+        return (int) ((legacyRealmBits != 0L ? legacyRealmBits : authorization & REALM_MASK) >>> SCOPE_BITS);
+    }
 
-        private final List<OAuthRealmInfo> realmInfos = new CopyOnWriteArrayList<>();
+    private static int nextRealmCode(
+        int realmCode)
+    {
+        final int lowestBit = realmCode & -realmCode;
+        final int ripple = realmCode + lowestBit;
+        return ripple | (((realmCode ^ ripple) >>> 2) / lowestBit);
+    }
+
+    private final class OAuthRealm
+    {
+        private final List<OAuthRealmInfo> realmInfos = new ArrayList<>();
 
         private final String realmName;
 
+        private int nextOrdinal;
         private int nextScopeBit;
 
         private OAuthRealm(
             String realmName)
         {
-            assert nextRealmBit < MAX_REALMS;
             this.realmName = realmName;
         }
 
@@ -235,49 +362,37 @@ public class OAuthRealms
             String audienceName,
             List<String> scopeNames)
         {
-            long authorization = NO_AUTHORIZATION;
-            assert nextRealmBit < MAX_REALMS;
-            final int scopeNamesSize = scopeNames != null ? scopeNames.size() : 0;
-            if (nextScopeBit + scopeNamesSize < MAX_SCOPES)
+            OAuthRealmInfo realmInfo = realmInfos.stream()
+                                                 .filter(r -> r.containsClaims(issuerName, audienceName))
+                                                 .findFirst()
+                                                 .orElse(null);
+
+            int newRealmCode = NO_REALM_CODE;
+            if (realmInfo == null)
             {
-                final OAuthRealmInfo realmInfo = realmInfos.stream()
-                                                           .filter(r -> r.containsClaims(issuerName, audienceName))
-                                                           .findFirst()
-                                                           .orElseGet(() -> newRealmInfo(issuerName, audienceName));
-                authorization = realmInfo.realmId;
-                for (int i = 0; i < scopeNamesSize; i++)
+                newRealmCode = supplyRealmCode();
+                if (newRealmCode != NO_REALM_CODE)
                 {
-                    authorization |= realmInfo.supplyScopeBit(scopeNames.get(i));
+                    realmInfo = newRealmInfo(newRealmCode, issuerName, audienceName);
                 }
             }
-            return authorization;
-        }
 
-        private long lookup(
-            String issuerName,
-            List<String> audienceNames,
-            List<String> scopeNames)
-        {
-            final OAuthRealmInfo realmInfo = realmInfos.stream()
-                                                       .filter(r -> r.containsClaims(issuerName, audienceNames))
-                                                       .findFirst()
-                                                       .orElse(null);
-            long authorization = NO_AUTHORIZATION;
-            if (realmInfo != null)
+            final long authorization = realmInfo != null ? realmInfo.supplyAuthorization(scopeNames) : NO_AUTHORIZATION;
+
+            if (authorization == NO_AUTHORIZATION && newRealmCode != NO_REALM_CODE)
             {
-                authorization = realmInfo.realmId;
-                for (int i = 0; i < scopeNames.size(); i++)
-                {
-                    authorization |= realmInfo.scopeBit(scopeNames.get(i));
-                }
+                realmInfos.remove(realmInfo);
+                realmInfosByCode.remove(newRealmCode);
+                releaseRealmCode(newRealmCode);
             }
+
             return authorization;
         }
 
-        private boolean unresolve(
-            long realmId)
+        private void unresolve(
+            OAuthRealmInfo realmInfo)
         {
-            return realmInfos.removeIf(i -> i.realmId == realmId);
+            realmInfos.remove(realmInfo);
         }
 
         private boolean isEmpty()
@@ -286,12 +401,15 @@ public class OAuthRealms
         }
 
         private OAuthRealmInfo newRealmInfo(
+            int realmCode,
             String issuerName,
             String audienceName)
         {
-            OAuthRealmInfo realmInfo =
-                    new OAuthRealmInfo(1L << nextRealmBit++ << MAX_SCOPES, issuerName, audienceName);
+            final long realmId = Integer.toUnsignedLong(realmCode) << SCOPE_BITS;
+
+            OAuthRealmInfo realmInfo = new OAuthRealmInfo(realmId, nextOrdinal++, issuerName, audienceName);
             realmInfos.add(realmInfo);
+            realmInfosByCode.put(realmCode, realmInfo);
             return realmInfo;
         }
 
@@ -304,58 +422,99 @@ public class OAuthRealms
 
         private final class OAuthRealmInfo
         {
-            private final Map<String, Long> scopeBitsByName = new CopyOnWriteHashMap<>();
+            private final Map<Set<String>, Long> scopeBitsByScopeNames = new HashMap<>();
 
             private final long realmId;
+            private final int ordinal;
             private final Claims requiredClaims;
 
+            private OAuthScopeDictionary scopes = OAuthScopeDictionary.EMPTY;
+            private int nextScopeSetBit;
+
             private OAuthRealmInfo(
                 long realmId,
+                int ordinal,
                 String issuerName,
                 String audienceName)
             {
                 this.realmId = realmId;
+                this.ordinal = ordinal;
                 this.requiredClaims = new Claims(issuerName, audienceName);
             }
 
-            private long scopeBit(
-                String scopeName)
+            private OAuthRealm realm()
             {
-                return scopeBitsByName.getOrDefault(scopeName, 0L);
+                return OAuthRealm.this;
             }
 
-            private long supplyScopeBit(
-                String scopeName)
+            private long supplyAuthorization(
+                List<String> scopeNames)
             {
-                return scopeBitsByName.computeIfAbsent(scopeName, this::assignScopeBit);
+                return Long.bitCount(realmId) == 1 ? supplyScopeNameBits(scopeNames) : supplyScopeSetBit(scopeNames);
             }
 
-            private boolean containsClaims(
-                String issuerName,
-                String audienceName)
+            private long supplyScopeNameBits(
+                List<String> scopeNames)
             {
-                return requiredClaims.containsClaims(issuerName, audienceName);
+                long authorization = NO_AUTHORIZATION;
+                final int scopeNamesSize = scopeNames != null ? scopeNames.size() : 0;
+                if (nextScopeBit + scopeNamesSize < maxLegacyScopeBits())
+                {
+                    final int scopeBitsSize = scopeBitsByScopeNames.size();
+
+                    authorization = realmId;
+                    for (int i = 0; i < scopeNamesSize; i++)
+                    {
+                        authorization |= scopeBitsByScopeNames.computeIfAbsent(singleton(scopeNames.get(i)),
+                            n -> supplyScopeNameBit());
+                    }
+
+                    if (scopeBitsByScopeNames.size() != scopeBitsSize)
+                    {
+                        scopes = new OAuthScopeDictionary(scopeBitsByScopeNames);
+                    }
+                }
+                return authorization;
             }
 
-            private boolean containsClaims(
-                String issuerName,
-                List<String> audienceNames)
+            private long supplyScopeNameBit()
+            {
+                final int scopeBit = nextScopeBit++;
+                legacyScopeBitsExtended |= scopeBit >= SCOPE_BITS;
+                return 1L << scopeBit;
+            }
+
+            private long supplyScopeSetBit(
+                List<String> scopeNames)
             {
-                return requiredClaims.containsClaims(issuerName, audienceNames);
+                long authorization = realmId;
+                if (scopeNames != null && !scopeNames.isEmpty())
+                {
+                    final Set<String> requiredScopeNames = unmodifiableSet(new HashSet<>(scopeNames));
+                    Long scopeBit = scopeBitsByScopeNames.get(requiredScopeNames);
+                    if (scopeBit == null && nextScopeSetBit < SCOPE_BITS)
+                    {
+                        scopeBit = 1L << nextScopeSetBit++;
+                        scopeBitsByScopeNames.put(requiredScopeNames, scopeBit);
+                        scopes = new OAuthScopeDictionary(scopeBitsByScopeNames);
+                    }
+                    authorization = scopeBit != null ? authorization | scopeBit : NO_AUTHORIZATION;
+                }
+                return authorization;
             }
 
-            private long assignScopeBit(
-                String scopeName)
+            private boolean containsClaims(
+                String issuerName,
+                String audienceName)
             {
-                assert nextScopeBit < MAX_SCOPES;
-                return 1L << nextScopeBit++;
+                return requiredClaims.containsClaims(issuerName, audienceName);
             }
 
             @Override
             public String toString()
             {
                 return String.format("Info: realm id=%d, claims=[%s], scope bits=%s",
-                        realmId, requiredClaims, this.scopeBitsByName);
+                        realmId, requiredClaims, this.scopeBitsByScopeNames);
             }
 
             private final class Claims
@@ -371,14 +530,6 @@ public class OAuthRealms
                     this.audienceName = audienceName;
                 }
 
-                private boolean containsClaims(
-                    String issuerName,
-                    List<String> audienceNames)
-                {
-                    return (this.issuerName == null || Objects.equals(this.issuerName, issuerName)) &&
-                            (this.audienceName == null || audienceNames.contains(audienceName));
-                }
-
                 private boolean containsClaims(
                     String issuerName,
                     String audienceName)
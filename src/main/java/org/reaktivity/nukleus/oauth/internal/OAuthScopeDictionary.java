@@ -0,0 +1,182 @@
+/**
+ * Copyright 2016-2021 The Reaktivity Project
+ *
+ * The Reaktivity Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package org.reaktivity.nukleus.oauth.internal;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.agrona.BitUtil.findNextPositivePowerOfTwo;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+final class OAuthScopeDictionary
+{
+    static final OAuthScopeDictionary EMPTY = new OAuthScopeDictionary(new LinkedHashMap<>());
+
+    private static final int NO_INDEX = -1;
+
+    private final int mask;
+    private final int[] hashes;
+    private final byte[][] names;
+    private final int[] indices;
+
+    private final int words;
+    private final int sets;
+    private final long[] required;
+    private final long[] bits;
+
+    OAuthScopeDictionary(
+        Map<Set<String>, Long> scopeBitsByScopeNames)
+    {
+        final Map<String, Integer> indicesByName = new LinkedHashMap<>();
+        scopeBitsByScopeNames.keySet().forEach(s -> s.forEach(n -> indicesByName.putIfAbsent(n, indicesByName.size())));
+
+        final int capacity = findNextPositivePowerOfTwo(Math.max(indicesByName.size() << 1, 2));
+        this.mask = capacity - 1;
+        this.hashes = new int[capacity];
+        this.names = new byte[capacity][];
+        this.indices = new int[capacity];
+
+        for (Map.Entry<String, Integer> entry : indicesByName.entrySet())
+        {
+            final byte[] name = entry.getKey().getBytes(UTF_8);
+            final int hash = OAuthKeyDirectory.hash(name, 0, name.length);
+            int slot = hash & mask;
+            while (names[slot] != null)
+            {
+                slot = (slot + 1) & mask;
+            }
+
+            hashes[slot] = hash;
+            names[slot] = name;
+            indices[slot] = entry.getValue();
+        }
+
+        this.words = Math.max((indicesByName.size() + Long.SIZE - 1) / Long.SIZE, 1);
+        this.sets = scopeBitsByScopeNames.size();
+        this.required = new long[sets * words];
+        this.bits = new long[sets];
+
+        int set = 0;
+        for (Map.Entry<Set<String>, Long> entry : scopeBitsByScopeNames.entrySet())
+        {
+            for (String name : entry.getKey())
+            {
+                final int index = indicesByName.get(name);
+                required[set * words + index / Long.SIZE] |= 1L << (index % Long.SIZE);
+            }
+            bits[set++] = entry.getValue();
+        }
+    }
+
+    // ORs the bits of every scope set fully present in the whitespace separated scope claim
+    long lookup(
+        byte[] scope)
+    {
+        long authorization = 0L;
+
+        if (sets != 0 && scope.length != 0)
+        {
+            long matches = sets < Long.SIZE ? (1L << sets) - 1L : -1L;
+            for (int word = 0; word < words && matches != 0L; word++)
+            {
+                final long present = present(scope, word);
+                for (int set = 0; set < sets; set++)
+                {
+                    final long requiredBits = required[set * words + word];
+                    if ((present & requiredBits) != requiredBits)
+                    {
+                        matches &= ~(1L << set);
+                    }
+                }
+            }
+
+            for (int set = 0; set < sets; set++)
+            {
+                if ((matches & (1L << set)) != 0L)
+                {
+                    authorization |= bits[set];
+                }
+            }
+        }
+
+        return authorization;
+    }
+
+    private long present(
+        byte[] scope,
+        int word)
+    {
+        long present = 0L;
+
+        int start = 0;
+        for (int progress = 0; progress <= scope.length; progress++)
+        {
+            if (progress == scope.length || isWhitespace(scope[progress]))
+            {
+                if (progress > start)
+                {
+                    final int index = indexOf(scope, start, progress - start);
+                    if (index != NO_INDEX && index / Long.SIZE == word)
+                    {
+                        present |= 1L << (index % Long.SIZE);
+                    }
+                }
+                start = progress + 1;
+            }
+        }
+
+        return present;
+    }
+
+    private int indexOf(
+        byte[] scope,
+        int offset,
+        int length)
+    {
+        final int hash = OAuthKeyDirectory.hash(scope, offset, length);
+
+        int slot = hash & mask;
+        while (names[slot] != null && (hashes[slot] != hash || !equals(names[slot], scope, offset, length)))
+        {
+            slot = (slot + 1) & mask;
+        }
+
+        return names[slot] != null ? indices[slot] : NO_INDEX;
+    }
+
+    private static boolean isWhitespace(
+        byte value)
+    {
+        return value == ' ' || value >= '\t' && value <= '\r';
+    }
+
+    private static boolean equals(
+        byte[] name,
+        byte[] scope,
+        int offset,
+        int length)
+    {
+        boolean equals = name.length == length;
+
+        for (int index = 0; equals && index < length; index++)
+        {
+            equals = name[index] == scope[offset + index];
+        }
+
+        return equals;
+    }
+}
@@ -0,0 +1,246 @@
+/**
+ * Copyright 2016-2021 The Reaktivity Project
+ *
+ * The Reaktivity Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package org.reaktivity.nukleus.oauth.internal;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Collections.emptyList;
+import static java.util.Collections.singletonList;
+import static java.util.Collections.unmodifiableList;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.jose4j.jwt.ReservedClaimNames.AUDIENCE;
+import static org.jose4j.jwt.ReservedClaimNames.ISSUER;
+import static org.jose4j.jwt.ReservedClaimNames.SUBJECT;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.agrona.DirectBuffer;
+import org.jose4j.jwt.JwtClaims;
+import org.jose4j.jwt.MalformedClaimException;
+import org.jose4j.jwt.NumericDate;
+import org.reaktivity.nukleus.oauth.internal.util.JwtClaimsReader;
+
+public final class OAuthVerifiedToken
+{
+    public static final long EXPIRES_NEVER = Long.MAX_VALUE;
+    public static final long NOT_BEFORE_ALWAYS = Long.MIN_VALUE;
+
+    private static final String SCOPE_CLAIM = "scope";
+    private static final byte[] EMPTY_SCOPE = new byte[0];
+
+    private final String kid;
+    private final OAuthKey key;
+    private final String subject;
+    private final String issuer;
+    private final List<String> audiences;
+    private final byte[] scope;
+    private final long expiresAtMillis;
+    private final long notBeforeMillis;
+    private final long challengeTimeoutMillis;
+
+    public OAuthVerifiedToken(
+        String kid,
+        OAuthKey key,
+        String subject,
+        String issuer,
+        List<String> audiences,
+        byte[] scope,
+        long expiresAtMillis,
+        long notBeforeMillis,
+        long challengeTimeoutMillis)
+    {
+        this.kid = kid;
+        this.key = key;
+        this.subject = subject;
+        this.issuer = issuer;
+        this.audiences = audiences;
+        this.scope = scope;
+        this.expiresAtMillis = expiresAtMillis;
+        this.notBeforeMillis = notBeforeMillis;
+        this.challengeTimeoutMillis = challengeTimeoutMillis;
+    }
+
+    public String kid()
+    {
+        return kid;
+    }
+
+    public OAuthKey key()
+    {
+        return key;
+    }
+
+    public String subject()
+    {
+        return subject;
+    }
+
+    public String issuer()
+    {
+        return issuer;
+    }
+
+    public List<String> audiences()
+    {
+        return audiences;
+    }
+
+    public byte[] scope()
+    {
+        return scope;
+    }
+
+    public long expiresAtMillis()
+    {
+        return expiresAtMillis;
+    }
+
+    public long notBeforeMillis()
+    {
+        return notBeforeMillis;
+    }
+
+    public long challengeTimeoutMillis()
+    {
+        return challengeTimeoutMillis;
+    }
+
+    public boolean isRevoked()
+    {
+        return key != null && key.isRevoked();
+    }
+
+    public boolean isValidAt(
+        long now)
+    {
+        return notBeforeMillis <= now && now <= expiresAtMillis;
+    }
+
+    @Override
+    public String toString()
+    {
+        return String.format("kid=\"%s\", sub=\"%s\", iss=\"%s\", aud=%s, scope=\"%s\", exp=%d, nbf=%d",
+                kid, subject, issuer, audiences, new String(scope, UTF_8), expiresAtMillis, notBeforeMillis);
+    }
+
+    public static OAuthVerifiedToken of(
+        String kid,
+        OAuthKey key,
+        JwtClaims claims,
+        String challengeTimeoutClaimName) throws MalformedClaimException
+    {
+        final NumericDate expirationTime = claims.getExpirationTime();
+        final NumericDate notBefore = claims.getNotBefore();
+        final Object subjectClaim = claims.getClaimValue(SUBJECT);
+        final Object issuerClaim = claims.getClaimValue(ISSUER);
+        final Object audienceClaim = claims.getClaimValue(AUDIENCE);
+        final Object scopeClaim = claims.getClaimValue(SCOPE_CLAIM);
+        final Object challengeTimeoutClaim = challengeTimeoutClaimName != null ?
+                claims.getClaimValue(challengeTimeoutClaimName) : null;
+
+        final String subject = subjectClaim instanceof String ? (String) subjectClaim : null;
+        final String issuer = issuerClaim != null ? issuerClaim.toString() : null;
+
+        List<String> audiences = emptyList();
+        if (audienceClaim instanceof List)
+        {
+            final List<?> audienceClaims = (List<?>) audienceClaim;
+            final List<String> audienceNames = new ArrayList<>(audienceClaims.size());
+            audienceClaims.forEach(a -> audienceNames.add(String.valueOf(a)));
+            audiences = unmodifiableList(audienceNames);
+        }
+        else if (audienceClaim instanceof String)
+        {
+            audiences = singletonList((String) audienceClaim);
+        }
+
+        final byte[] scope = scopeClaim != null ? scopeClaim.toString().getBytes(UTF_8) : EMPTY_SCOPE;
+
+        long challengeTimeoutMillis = 0L;
+        if (challengeTimeoutClaim != null)
+        {
+            try
+            {
+                challengeTimeoutMillis = SECONDS.toMillis(Integer.parseInt(challengeTimeoutClaim.toString()));
+            }
+            catch (NumberFormatException ex)
+            {
+                // ignore challenge timeout
+            }
+        }
+
+        return new OAuthVerifiedToken(
+                kid,
+                key,
+                subject,
+                issuer,
+                audiences,
+                scope,
+                expirationTime != null ? expirationTime.getValueInMillis() : EXPIRES_NEVER,
+                notBefore != null ? notBefore.getValueInMillis() : NOT_BEFORE_ALWAYS,
+                challengeTimeoutMillis);
+    }
+
+    public static OAuthVerifiedToken of(
+        String kid,
+        OAuthKey key,
+        JwtClaimsReader claims)
+    {
+        final DirectBuffer buffer = claims.buffer();
+
+        List<String> audiences = emptyList();
+        final int audienceCount = claims.audienceCount();
+        if (audienceCount == 1)
+        {
+            audiences = singletonList(buffer.getStringWithoutLengthUtf8(claims.audienceOffset(0), claims.audienceLength(0)));
+        }
+        else if (audienceCount > 1)
+        {
+            final List<String> audienceNames = new ArrayList<>(audienceCount);
+            for (int index = 0; index < audienceCount; index++)
+            {
+                audienceNames.add(buffer.getStringWithoutLengthUtf8(claims.audienceOffset(index), claims.audienceLength(index)));
+            }
+            audiences = unmodifiableList(audienceNames);
+        }
+
+        byte[] scope = EMPTY_SCOPE;
+        if (claims.scopeLength() > 0)
+        {
+            scope = new byte[claims.scopeLength()];
+            buffer.getBytes(claims.scopeOffset(), scope);
+        }
+
+        return new OAuthVerifiedToken(
+                kid,
+                key,
+                stringValue(buffer, claims.subjectOffset(), claims.subjectLength()),
+                stringValue(buffer, claims.issuerOffset(), claims.issuerLength()),
+                audiences,
+                scope,
+                claims.hasExpirationTime() ? SECONDS.toMillis(claims.expirationTime()) : EXPIRES_NEVER,
+                claims.hasNotBefore() ? SECONDS.toMillis(claims.notBefore()) : NOT_BEFORE_ALWAYS,
+                claims.hasChallengeTimeout() ? SECONDS.toMillis(claims.challengeTimeout()) : 0L);
+    }
+
+    private static String stringValue(
+        DirectBuffer buffer,
+        int offset,
+        int length)
+    {
+        return length != -1 ? buffer.getStringWithoutLengthUtf8(offset, length) : null;
+    }
+}
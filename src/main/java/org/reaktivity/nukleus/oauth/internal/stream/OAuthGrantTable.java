@@ -0,0 +1,200 @@
+/**
+ * Copyright 2016-2021 The Reaktivity Project
+ *
+ * The Reaktivity Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package org.reaktivity.nukleus.oauth.internal.stream;
+
+import static org.agrona.BitUtil.findNextPositivePowerOfTwo;
+
+// not thread-safe, grants by realm, affinity and subject in one open addressing table
+final class OAuthGrantTable<V>
+{
+    private static final int MIN_CAPACITY = 16;
+    private static final int NO_SLOT = -1;
+
+    private int mask;
+    private int size;
+    private int[] hashes;
+    private int[] realmIds;
+    private long[] affinities;
+
+    // subject strings are shared with cached verified tokens, so a key costs no copy and reuses the string's hash
+    private String[] subjects;
+    private Object[] values;
+
+    OAuthGrantTable(
+        int initialCapacity)
+    {
+        allocate(findNextPositivePowerOfTwo(Math.max(initialCapacity, MIN_CAPACITY)));
+    }
+
+    int size()
+    {
+        return size;
+    }
+
+    @SuppressWarnings("unchecked")
+    V get(
+        int realmId,
+        long affinity,
+        String subject)
+    {
+        final int slot = slotOf(hash(realmId, affinity, subject), realmId, affinity, subject);
+        return slot != NO_SLOT ? (V) values[slot] : null;
+    }
+
+    void put(
+        int realmId,
+        long affinity,
+        String subject,
+        V value)
+    {
+        final int hash = hash(realmId, affinity, subject);
+        final int slot = slotOf(hash, realmId, affinity, subject);
+
+        if (slot != NO_SLOT)
+        {
+            values[slot] = value;
+        }
+        else
+        {
+            if (size + 1 > (values.length >> 1) + (values.length >> 2))
+            {
+                resize(values.length << 1);
+            }
+
+            insert(hash, realmId, affinity, subject, value);
+            size++;
+        }
+    }
+
+    boolean remove(
+        int realmId,
+        long affinity,
+        String subject)
+    {
+        final int slot = slotOf(hash(realmId, affinity, subject), realmId, affinity, subject);
+
+        if (slot != NO_SLOT)
+        {
+            removeAt(slot);
+            size--;
+        }
+
+        return slot != NO_SLOT;
+    }
+
+    private int slotOf(
+        int hash,
+        int realmId,
+        long affinity,
+        String subject)
+    {
+        int slot = hash & mask;
+        while (values[slot] != null &&
+               (hashes[slot] != hash || realmIds[slot] != realmId || affinities[slot] != affinity ||
+                !subject.equals(subjects[slot])))
+        {
+            slot = (slot + 1) & mask;
+        }
+
+        return values[slot] != null ? slot : NO_SLOT;
+    }
+
+    private void insert(
+        int hash,
+        int realmId,
+        long affinity,
+        String subject,
+        Object value)
+    {
+        int slot = hash & mask;
+        while (values[slot] != null)
+        {
+            slot = (slot + 1) & mask;
+        }
+
+        hashes[slot] = hash;
+        realmIds[slot] = realmId;
+        affinities[slot] = affinity;
+        subjects[slot] = subject;
+        values[slot] = value;
+    }
+
+    // shift later entries of the probe sequence back, so lookups never need tombstones
+    private void removeAt(
+        int slot)
+    {
+        int gap = slot;
+        for (int next = (gap + 1) & mask; values[next] != null; next = (next + 1) & mask)
+        {
+            final int home = hashes[next] & mask;
+            if (((next - home) & mask) >= ((next - gap) & mask))
+            {
+                hashes[gap] = hashes[next];
+                realmIds[gap] = realmIds[next];
+                affinities[gap] = affinities[next];
+                subjects[gap] = subjects[next];
+                values[gap] = values[next];
+                gap = next;
+            }
+        }
+
+        subjects[gap] = null;
+        values[gap] = null;
+    }
+
+    private void resize(
+        int capacity)
+    {
+        final int[] oldHashes = hashes;
+        final int[] oldRealmIds = realmIds;
+        final long[] oldAffinities = affinities;
+        final String[] oldSubjects = subjects;
+        final Object[] oldValues = values;
+
+        allocate(capacity);
+
+        for (int slot = 0; slot < oldValues.length; slot++)
+        {
+            if (oldValues[slot] != null)
+            {
+                insert(oldHashes[slot], oldRealmIds[slot], oldAffinities[slot], oldSubjects[slot], oldValues[slot]);
+            }
+        }
+    }
+
+    private void allocate(
+        int capacity)
+    {
+        this.mask = capacity - 1;
+        this.hashes = new int[capacity];
+        this.realmIds = new int[capacity];
+        this.affinities = new long[capacity];
+        this.subjects = new String[capacity];
+        this.values = new Object[capacity];
+    }
+
+    private static int hash(
+        int realmId,
+        long affinity,
+        String subject)
+    {
+        int hash = subject.hashCode();
+        hash = 31 * hash + realmId;
+        hash = 31 * hash + Long.hashCode(affinity);
+        final int mixed = hash * 0x9E3779B9;
+        return mixed ^ (mixed >>> 16);
+    }
+}
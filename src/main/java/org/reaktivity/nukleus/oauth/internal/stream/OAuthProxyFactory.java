@@ -15,44 +15,34 @@
  */
 package org.reaktivity.nukleus.oauth.internal.stream;
 
-import static java.lang.Integer.parseInt;
 import static java.nio.charset.StandardCharsets.US_ASCII;
 import static java.util.Objects.requireNonNull;
-import static java.util.concurrent.TimeUnit.SECONDS;
 import static org.reaktivity.nukleus.concurrent.Signaler.NO_CANCEL_ID;
 import static org.reaktivity.nukleus.oauth.internal.Capabilities.canChallenge;
-import static org.reaktivity.nukleus.oauth.internal.util.BufferUtil.indexOfBytes;
+import static org.reaktivity.nukleus.oauth.internal.OAuthRealms.realmCode;
+import static org.reaktivity.nukleus.oauth.internal.stream.OAuthTokenVerifierPool.NO_INDEX;
 
-import java.util.Arrays;
-import java.util.IdentityHashMap;
-import java.util.Map;
 import java.util.Objects;
 import java.util.function.Consumer;
-import java.util.function.Function;
+import java.util.function.IntConsumer;
 import java.util.function.LongConsumer;
 import java.util.function.LongSupplier;
 import java.util.function.LongUnaryOperator;
 import java.util.function.ToIntFunction;
 import java.util.function.ToLongFunction;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 import org.agrona.DirectBuffer;
 import org.agrona.MutableDirectBuffer;
+import org.agrona.collections.Int2ObjectHashMap;
 import org.agrona.collections.Long2ObjectHashMap;
 import org.agrona.collections.MutableInteger;
 import org.agrona.concurrent.UnsafeBuffer;
-import org.jose4j.jwk.JsonWebKey;
-import org.jose4j.jws.JsonWebSignature;
-import org.jose4j.jwt.JwtClaims;
-import org.jose4j.jwt.MalformedClaimException;
-import org.jose4j.jwt.NumericDate;
-import org.jose4j.jwt.consumer.InvalidJwtException;
-import org.jose4j.lang.JoseException;
 import org.reaktivity.nukleus.concurrent.Signaler;
 import org.reaktivity.nukleus.function.MessageConsumer;
 import org.reaktivity.nukleus.function.MessagePredicate;
 import org.reaktivity.nukleus.oauth.internal.OAuthConfiguration;
+import org.reaktivity.nukleus.oauth.internal.OAuthKeyLookup;
+import org.reaktivity.nukleus.oauth.internal.OAuthVerifiedToken;
 import org.reaktivity.nukleus.oauth.internal.types.Array32FW;
 import org.reaktivity.nukleus.oauth.internal.types.Flyweight;
 import org.reaktivity.nukleus.oauth.internal.types.HttpHeaderFW;
@@ -70,29 +60,30 @@ import org.reaktivity.nukleus.oauth.internal.types.stream.HttpChallengeExFW;
 import org.reaktivity.nukleus.oauth.internal.types.stream.ResetFW;
 import org.reaktivity.nukleus.oauth.internal.types.stream.SignalFW;
 import org.reaktivity.nukleus.oauth.internal.types.stream.WindowFW;
+import org.reaktivity.nukleus.oauth.internal.util.Base64Util;
 import org.reaktivity.nukleus.oauth.internal.util.BufferUtil;
 import org.reaktivity.nukleus.route.RouteManager;
 import org.reaktivity.nukleus.stream.StreamFactory;
 
 public class OAuthProxyFactory implements StreamFactory
 {
-    private static final long EXPIRES_NEVER = Long.MAX_VALUE;
-    private static final long EXPIRES_IMMEDIATELY = 0L;
+    private static final long EXPIRES_NEVER = OAuthVerifiedToken.EXPIRES_NEVER;
 
     private static final int GRANT_VALIDATION_SIGNAL = 1;
+    private static final int VERIFY_SIGNAL = 2;
 
-    private static final long REALM_MASK = 0xFFFF_000000000000L;
+    private static final long VERIFY_POLL_INTERVAL_MILLIS = 1L;
 
-    private static final int SCOPE_BITS = 48;
+    private static final int INITIAL_GRANTS_CAPACITY = 1024;
 
     private static final Consumer<String> NOOP_CLEANER = s -> {};
 
-    private static final Pattern QUERY_PARAMS = Pattern.compile("(?:\\?|.*?&)access_token=([^&#]+)(?:&.*)?");
-
     private static final String END_CHALLENGE_TYPE = "application/x-challenge-response";
 
     private static final byte[] BEARER_PREFIX = "Bearer ".getBytes(US_ASCII);
     private static final byte[] QUERY_PREFIX = "?".getBytes(US_ASCII);
+    private static final byte[] QUERY_PARAM_SEPARATOR = "&".getBytes(US_ASCII);
+    private static final byte[] ACCESS_TOKEN_PARAM = "access_token=".getBytes(US_ASCII);
     private static final byte[] AUTHORIZATION = "authorization".getBytes(US_ASCII);
     private static final byte[] PATH = ":path".getBytes(US_ASCII);
 
@@ -134,24 +125,31 @@ public class OAuthProxyFactory implements StreamFactory
     private final ResetFW resetRO = new ResetFW();
     private final SignalFW signalRO = new SignalFW();
 
-    private final JsonWebSignature signature = new JsonWebSignature();
+    private final UnsafeBuffer tokenRO = new UnsafeBuffer(new byte[0]);
 
-    private final Long2ObjectHashMap<Map<String, OAuthAccessGrant>>[] grantsBySubjectByAffinityPerRealm;
+    private final OAuthGrantTable<OAuthAccessGrant> grants;
 
     private final OAuthConfiguration config;
     private final RouteManager router;
     private final LongUnaryOperator supplyInitialId;
     private final LongSupplier supplyTraceId;
     private final LongUnaryOperator supplyReplyId;
-    private final Function<String, JsonWebKey> lookupKey;
-    private final ToLongFunction<JsonWebSignature> lookupAuthorization;
+    private final ToLongFunction<OAuthVerifiedToken> lookupAuthorization;
     private final Signaler signaler;
     private final Long2ObjectHashMap<OAuthProxy> correlations;
+    private final OAuthTokenCache verifiedTokens;
+    private final OAuthRejectedTokenCache rejectedTokens;
+    private final int tokenMaxLength;
+    private final OAuthTokenVerifier verifier;
+    private final OAuthTokenVerifierPool.Client verifiers;
+    private final Int2ObjectHashMap<OAuthPendingStream> pendingStreams;
+    private final IntConsumer onVerified;
     private final Writer writer;
     private final UnsafeBuffer extensionBuffer;
     private final int httpTypeId;
 
-    private final String challengeTimeoutClaimName;
+    private OAuthPendingStream verifyPollStream;
+    private long verifyPollCancelId = NO_CANCEL_ID;
 
     public OAuthProxyFactory(
         OAuthConfiguration config,
@@ -160,8 +158,9 @@ public class OAuthProxyFactory implements StreamFactory
         LongSupplier supplyTraceId,
         ToIntFunction<String> supplyTypeId,
         LongUnaryOperator supplyReplyId,
-        Function<String, JsonWebKey> lookupKey,
-        ToLongFunction<JsonWebSignature> lookupAuthorization,
+        OAuthKeyLookup lookupKey,
+        ToLongFunction<OAuthVerifiedToken> lookupAuthorization,
+        OAuthTokenVerifierPool verifierPool,
         Signaler signaler,
         RouteManager router)
     {
@@ -173,13 +172,18 @@ public class OAuthProxyFactory implements StreamFactory
         this.supplyReplyId = requireNonNull(supplyReplyId);
         this.supplyTraceId = requireNonNull(supplyTraceId);
         this.correlations = new Long2ObjectHashMap<>();
-        this.lookupKey = lookupKey;
+        this.verifiedTokens = new OAuthTokenCache(config.tokenCacheCapacity());
+        this.tokenMaxLength = config.tokenMaxLength();
+        this.rejectedTokens = new OAuthRejectedTokenCache(config.rejectedTokenCacheCapacity(), config.rejectedTokenTtl());
         this.lookupAuthorization = lookupAuthorization;
         this.signaler = signaler;
         this.httpTypeId = supplyTypeId.applyAsInt("http");
-        this.grantsBySubjectByAffinityPerRealm = initGrantsBySubjectByAffinityPerRealm();
-        this.challengeTimeoutClaimName = String.format("%s%s", config.getCanonicalClaimNamespace(),
-            config.getClaimNameChallengeTimeout());
+        this.grants = new OAuthGrantTable<>(INITIAL_GRANTS_CAPACITY);
+        this.verifier = new OAuthTokenVerifier(lookupKey, config.getCanonicalClaimNameChallengeTimeout(),
+                writeBuffer.capacity());
+        this.verifiers = verifierPool != null ? verifierPool.newClient() : null;
+        this.pendingStreams = new Int2ObjectHashMap<>();
+        this.onVerified = this::onVerified;
     }
 
     @Override
@@ -190,6 +194,11 @@ public class OAuthProxyFactory implements StreamFactory
         int length,
         MessageConsumer source)
     {
+        if (verifiers != null)
+        {
+            drainVerified();
+        }
+
         final BeginFW begin = beginRO.wrap(buffer, index, index + length);
         final long streamId = begin.streamId();
 
@@ -210,6 +219,97 @@ public class OAuthProxyFactory implements StreamFactory
     private MessageConsumer newInitialStream(
         final BeginFW begin,
         final MessageConsumer acceptReply)
+    {
+        final HttpBeginExFW httpBeginEx = begin.extension().get(httpBeginExRO::tryWrap);
+        final DirectBuffer token = bearerToken(httpBeginEx);
+
+        OAuthVerifiedToken verified = null;
+        MessageConsumer newStream = null;
+
+        if (token != null && isWellFormedToken(token, tokenMaxLength))
+        {
+            final long now = System.currentTimeMillis();
+
+            verified = verifiedTokens.get(token, now);
+            if (verified == null && !rejectedTokens.contains(token, now))
+            {
+                if (verifiers != null)
+                {
+                    newStream = newPendingStream(begin, acceptReply, token, now);
+                }
+
+                if (newStream == null)
+                {
+                    verified = verifyToken(token, now);
+                }
+            }
+        }
+
+        if (newStream == null)
+        {
+            newStream = newInitialStream(begin, acceptReply, verified);
+        }
+
+        return newStream;
+    }
+
+    private MessageConsumer newPendingStream(
+        final BeginFW begin,
+        final MessageConsumer acceptReply,
+        final DirectBuffer token,
+        final long now)
+    {
+        MessageConsumer newStream = null;
+
+        final int index = verifiers.submit(token, now);
+        if (index != NO_INDEX)
+        {
+            final OAuthPendingStream pendingStream = new OAuthPendingStream(acceptReply, begin);
+            pendingStreams.put(index, pendingStream);
+
+            if (verifyPollStream == null)
+            {
+                pollVerified(now);
+            }
+
+            newStream = pendingStream::onStreamMessage;
+        }
+
+        return newStream;
+    }
+
+    private void drainVerified()
+    {
+        verifiers.drain(onVerified);
+
+        if (verifyPollStream == null && !pendingStreams.isEmpty())
+        {
+            pollVerified(System.currentTimeMillis());
+        }
+    }
+
+    // a single poll signal per factory drains verified tokens, carried by any one pending stream
+    private void pollVerified(
+        long now)
+    {
+        final OAuthPendingStream pendingStream = pendingStreams.values().iterator().next();
+        verifyPollCancelId = signaler.signalAt(now + VERIFY_POLL_INTERVAL_MILLIS,
+                pendingStream.acceptRouteId, pendingStream.acceptReplyId, VERIFY_SIGNAL);
+        verifyPollStream = pendingStream;
+    }
+
+    private void onVerified(
+        int index)
+    {
+        final OAuthPendingStream pendingStream = pendingStreams.remove(index);
+        final OAuthVerifiedToken verified = verifiers.release(index);
+        pendingStream.onVerified(verified);
+    }
+
+    private MessageConsumer newInitialStream(
+        final BeginFW begin,
+        final MessageConsumer acceptReply,
+        final OAuthVerifiedToken verified)
     {
         final long acceptAuthorization = begin.authorization();
         final long acceptRouteId = begin.routeId();
@@ -221,8 +321,6 @@ public class OAuthProxyFactory implements StreamFactory
         final OctetsFW extension = begin.extension();
         final HttpBeginExFW httpBeginEx = extension.get(httpBeginExRO::tryWrap);
 
-        final JsonWebSignature verified = verifiedSignature(begin);
-
         long connectAuthorization = acceptAuthorization;
         if (verified != null)
         {
@@ -231,7 +329,7 @@ public class OAuthProxyFactory implements StreamFactory
 
         final String subject = resolveSubject(verified);
         final long expiresAtMillis = config.expireInFlightRequests() ? expiresAtMillis(verified) : EXPIRES_NEVER;
-        final int realmId = (int) ((connectAuthorization & REALM_MASK) >> SCOPE_BITS);
+        final int realmId = realmCode(connectAuthorization);
 
         final MessagePredicate filter = (t, b, o, l) -> true;
         final RouteFW route = router.resolve(acceptRouteId, connectAuthorization, filter, this::wrapRoute);
@@ -366,32 +464,14 @@ public class OAuthProxyFactory implements StreamFactory
         return routeRO.wrap(buffer, index, index + length);
     }
 
-    private long resolveChallengeTimeout(
-        JsonWebSignature verified)
+    private static long resolveChallengeTimeout(
+        OAuthVerifiedToken verified)
     {
-        long challengeTimeout = 0;
-
-        try
-        {
-            if (verified != null)
-            {
-                final JwtClaims claims = JwtClaims.parse(verified.getPayload());
-                final Object claimValue = claims.getClaimValue(challengeTimeoutClaimName);
-                if (claimValue != null)
-                {
-                    challengeTimeout = SECONDS.toMillis(parseInt(claimValue.toString()));
-                }
-            }
-        }
-        catch (InvalidJwtException | JoseException | NumberFormatException e)
-        {
-            // invalid token
-        }
-        return challengeTimeout;
+        return verified != null ? verified.challengeTimeoutMillis() : 0L;
     }
 
     private OAuthAccessGrant supplyGrant(
-        final int realmIndex,
+        final int realmId,
         final long affinityId,
         final String subject)
     {
@@ -399,9 +479,12 @@ public class OAuthProxyFactory implements StreamFactory
 
         if (affinityId != 0L && subject != null)
         {
-            final Map<String, OAuthAccessGrant> grantsBySubject = supplyGrantsBySubject(realmIndex, affinityId);
-            final String subjectKey = subject.intern();
-            grant = grantsBySubject.computeIfAbsent(subjectKey, s -> new OAuthAccessGrant(grantsBySubject::remove));
+            grant = grants.get(realmId, affinityId, subject);
+            if (grant == null)
+            {
+                grant = new OAuthAccessGrant(s -> grants.remove(realmId, affinityId, s));
+                grants.put(realmId, affinityId, subject, grant);
+            }
         }
         else
         {
@@ -411,42 +494,12 @@ public class OAuthProxyFactory implements StreamFactory
         return grant;
     }
 
-    private Map<String, OAuthAccessGrant> supplyGrantsBySubject(
-        final int realmIndex,
-        final long affinityId)
-    {
-        final Long2ObjectHashMap<Map<String, OAuthAccessGrant>> grantsBySubjectByAffinity =
-                grantsBySubjectByAffinityPerRealm[realmIndex];
-        return grantsBySubjectByAffinity.computeIfAbsent(affinityId, a -> new IdentityHashMap<>());
-    }
-
     private OAuthAccessGrant lookupGrant(
-        final int realmIndex,
+        final int realmId,
         final long affinityId,
         final String subject)
     {
-        OAuthAccessGrant grant = null;
-
-        if (affinityId != 0L && subject != null)
-        {
-            final Map<String, OAuthAccessGrant> grantsBySubject = lookupGrantsBySubject(realmIndex, affinityId);
-            if (grantsBySubject != null)
-            {
-                final String subjectKey = subject.intern();
-                grant = grantsBySubject.get(subjectKey);
-            }
-        }
-
-        return grant;
-    }
-
-    private Map<String, OAuthAccessGrant> lookupGrantsBySubject(
-        final int realmIndex,
-        final long affinityId)
-    {
-        final Long2ObjectHashMap<Map<String, OAuthAccessGrant>> grantsBySubjectByAffinity =
-                grantsBySubjectByAffinityPerRealm[realmIndex];
-        return grantsBySubjectByAffinity.get(affinityId);
+        return affinityId != 0L && subject != null ? grants.get(realmId, affinityId, subject) : null;
     }
 
     private final class OAuthAccessGrant
@@ -491,7 +544,7 @@ public class OAuthProxyFactory implements StreamFactory
             }
             else
             {
-                this.subject = subject != null ? subject.intern() : null;
+                this.subject = subject;
                 this.authorization = connectAuthorization;
                 this.expiresAtMillis = expiresAtMillis;
                 this.challengeTimeoutMillis = challengeTimeoutMillis;
@@ -545,6 +598,134 @@ public class OAuthProxyFactory implements StreamFactory
         }
     }
 
+    private final class OAuthPendingStream
+    {
+        private final MessageConsumer acceptReply;
+        private final long acceptRouteId;
+        private final long acceptInitialId;
+        private final long acceptReplyId;
+        private final MutableDirectBuffer beginBuffer;
+
+        private MutableDirectBuffer endBuffer;
+        private MessageConsumer delegate;
+        private boolean aborted;
+
+        private OAuthPendingStream(
+            MessageConsumer acceptReply,
+            BeginFW begin)
+        {
+            this.acceptReply = acceptReply;
+            this.acceptRouteId = begin.routeId();
+            this.acceptInitialId = begin.streamId();
+            this.acceptReplyId = supplyReplyId.applyAsLong(acceptInitialId);
+            this.beginBuffer = new UnsafeBuffer(new byte[begin.sizeof()]);
+            this.beginBuffer.putBytes(0, begin.buffer(), begin.offset(), begin.sizeof());
+
+            router.setThrottle(acceptReplyId, this::onThrottleMessage);
+        }
+
+        private void onStreamMessage(
+            int msgTypeId,
+            DirectBuffer buffer,
+            int index,
+            int length)
+        {
+            if (delegate != null)
+            {
+                delegate.accept(msgTypeId, buffer, index, length);
+            }
+            else if (!aborted)
+            {
+                switch (msgTypeId)
+                {
+                case EndFW.TYPE_ID:
+                    endBuffer = new UnsafeBuffer(new byte[length]);
+                    endBuffer.putBytes(0, buffer, index, length);
+                    break;
+                case AbortFW.TYPE_ID:
+                    aborted = true;
+                    break;
+                case FlushFW.TYPE_ID:
+                    // ignore
+                    break;
+                default:
+                    final BeginFW begin = beginRO.wrap(beginBuffer, 0, beginBuffer.capacity());
+                    writer.doReset(acceptReply, acceptRouteId, acceptInitialId, begin.sequence(), begin.acknowledge(),
+                            begin.maximum(), supplyTraceId.getAsLong(), begin.authorization());
+                    aborted = true;
+                    break;
+                }
+            }
+        }
+
+        private void onThrottleMessage(
+            int msgTypeId,
+            DirectBuffer buffer,
+            int index,
+            int length)
+        {
+            if (msgTypeId == SignalFW.TYPE_ID)
+            {
+                final SignalFW signal = signalRO.wrap(buffer, index, index + length);
+                if (signal.signalId() == VERIFY_SIGNAL)
+                {
+                    if (verifyPollStream == this)
+                    {
+                        verifyPollStream = null;
+                        verifyPollCancelId = NO_CANCEL_ID;
+                    }
+
+                    drainVerified();
+                }
+            }
+        }
+
+        private void onVerified(
+            OAuthVerifiedToken verifiedToken)
+        {
+            if (verifyPollStream == this)
+            {
+                signaler.cancel(verifyPollCancelId);
+                verifyPollStream = null;
+                verifyPollCancelId = NO_CANCEL_ID;
+            }
+            router.clearThrottle(acceptReplyId);
+
+            final BeginFW begin = beginRO.wrap(beginBuffer, 0, beginBuffer.capacity());
+
+            final HttpBeginExFW httpBeginEx = begin.extension().get(httpBeginExRO::tryWrap);
+            final DirectBuffer token = bearerToken(httpBeginEx);
+            if (verifiedToken != null)
+            {
+                verifiedTokens.put(token, verifiedToken);
+            }
+            else
+            {
+                rejectedTokens.add(token, System.currentTimeMillis());
+            }
+
+            if (!aborted)
+            {
+                final MessageConsumer newStream = newInitialStream(begin, acceptReply, verifiedToken);
+                if (newStream != null)
+                {
+                    delegate = newStream;
+
+                    if (endBuffer != null)
+                    {
+                        newStream.accept(EndFW.TYPE_ID, endBuffer, 0, endBuffer.capacity());
+                    }
+                }
+                else
+                {
+                    writer.doReset(acceptReply, acceptRouteId, acceptInitialId, begin.sequence(), begin.acknowledge(),
+                            begin.maximum(), begin.traceId(), begin.authorization());
+                    aborted = true;
+                }
+            }
+        }
+    }
+
     private final class OAuthProxy
     {
         private final MessageConsumer source;
@@ -947,52 +1128,27 @@ public class OAuthProxyFactory implements StreamFactory
         }
     }
 
-    private JsonWebSignature verifiedSignature(
-        BeginFW begin)
+    private OAuthVerifiedToken verifyToken(
+        DirectBuffer token,
+        long now)
     {
-        final HttpBeginExFW httpBeginEx = begin.extension().get(httpBeginExRO::tryWrap);
-
-        JsonWebSignature verified = null;
-
-        final String token = bearerToken(httpBeginEx);
-        if (token != null)
+        final OAuthVerifiedToken verified = verifier.verify(token, now);
+        if (verified != null)
         {
-            try
-            {
-                signature.setCompactSerialization(token);
-                final String kid = signature.getKeyIdHeaderValue();
-                final String algorithm = signature.getAlgorithmHeaderValue();
-                final JsonWebKey key = lookupKey.apply(kid);
-                if (algorithm != null && key != null && algorithm.equals(key.getAlgorithm()))
-                {
-                    signature.setKey(null);
-                    signature.setKey(key.getKey());
-
-                    final JwtClaims claims = JwtClaims.parse(signature.getPayload());
-                    final NumericDate expirationTime = claims.getExpirationTime();
-                    final NumericDate notBefore = claims.getNotBefore();
-                    final long now = System.currentTimeMillis();
-                    if ((expirationTime == null || now <= expirationTime.getValueInMillis()) &&
-                        (notBefore == null || now >= notBefore.getValueInMillis()) &&
-                        signature.verifySignature())
-                    {
-                        verified = signature;
-                    }
-                }
-            }
-            catch (JoseException | MalformedClaimException | InvalidJwtException ex)
-            {
-                // invalid token
-            }
+            verifiedTokens.put(token, verified);
+        }
+        else
+        {
+            rejectedTokens.add(token, now);
         }
 
         return verified;
     }
 
-    private static String bearerToken(
+    private DirectBuffer bearerToken(
         HttpBeginExFW httpBeginEx)
     {
-        String token = null;
+        DirectBuffer token = null;
 
         if (httpBeginEx != null)
         {
@@ -1004,12 +1160,12 @@ public class OAuthProxyFactory implements StreamFactory
                 final String16FW value = authorization.value();
 
                 final int tokenAt = BufferUtil.limitOfBytes(value, BEARER_PREFIX);
+                final int limit = value.limit();
 
-                if (tokenAt > 0)
+                if (tokenAt > 0 && tokenAt < limit)
                 {
-                    final DirectBuffer buffer = value.buffer();
-                    final int limit = value.limit();
-                    token = buffer.getStringWithoutLengthUtf8(tokenAt, limit - tokenAt);
+                    tokenRO.wrap(value.buffer(), tokenAt, limit - tokenAt);
+                    token = tokenRO;
                 }
             }
 
@@ -1019,15 +1175,10 @@ public class OAuthProxyFactory implements StreamFactory
                 if (path != null)
                 {
                     final String16FW value = path.value();
-                    final int queryAt = indexOfBytes(value, QUERY_PREFIX);
+                    final int queryAt = BufferUtil.limitOfBytes(value, QUERY_PREFIX);
                     if (queryAt != -1)
                     {
-                        final String query = path.value().asString().substring(queryAt);
-                        final Matcher matcher = QUERY_PARAMS.matcher(query);
-                        if (matcher.matches())
-                        {
-                            token = matcher.group(1);
-                        }
+                        token = queryAccessToken(value.buffer(), queryAt, value.limit());
                     }
                 }
             }
@@ -1036,56 +1187,82 @@ public class OAuthProxyFactory implements StreamFactory
         return token;
     }
 
-    private static String resolveSubject(
-        JsonWebSignature verified)
+    private DirectBuffer queryAccessToken(
+        DirectBuffer buffer,
+        int offset,
+        int limit)
     {
-        String subject = null;
-        try
+        DirectBuffer token = null;
+
+        int paramAt = offset;
+        while (token == null && paramAt != -1)
         {
-            if (verified != null)
+            final int valueAt = paramAt + ACCESS_TOKEN_PARAM.length;
+            if (valueAt <= limit && BufferUtil.equals(buffer, paramAt, valueAt, ACCESS_TOKEN_PARAM))
             {
-                final JwtClaims claims = JwtClaims.parse(verified.getPayload());
-                subject = claims.getSubject();
+                int valueLimit = valueAt;
+                while (valueLimit < limit && !isQueryValueDelimiter(buffer.getByte(valueLimit)))
+                {
+                    valueLimit++;
+                }
+
+                if (valueLimit > valueAt && (valueLimit == limit || buffer.getByte(valueLimit) == '&'))
+                {
+                    tokenRO.wrap(buffer, valueAt, valueLimit - valueAt);
+                    token = tokenRO;
+                }
             }
+
+            paramAt = BufferUtil.limitOfBytes(buffer, paramAt, limit, QUERY_PARAM_SEPARATOR);
         }
-        catch (InvalidJwtException | JoseException | MalformedClaimException e)
-        {
-            // invalid token
-        }
-        return subject;
+
+        return token;
     }
 
-    private static long expiresAtMillis(
-        JsonWebSignature verified)
+    static boolean isWellFormedToken(
+        DirectBuffer token,
+        int tokenMaxLength)
     {
-        long expiresAtMillis = EXPIRES_NEVER;
+        final int length = token.capacity();
 
-        if (verified != null)
+        boolean wellFormed = length <= tokenMaxLength && length > 2 &&
+                token.getByte(0) == 'e' && (token.getByte(1) == 'y' || token.getByte(1) == 'w');
+
+        int separators = 0;
+        int segmentAt = 0;
+        for (int index = 0; wellFormed && index < length; index++)
         {
-            try
+            final byte value = token.getByte(index);
+            if (value == '.')
             {
-                JwtClaims claims = JwtClaims.parse(verified.getPayload());
-                NumericDate expirationTime = claims.getExpirationTime();
-                if (expirationTime != null)
-                {
-                    expiresAtMillis = expirationTime.getValueInMillis();
-                }
+                wellFormed = index > segmentAt && ++separators <= 2;
+                segmentAt = index + 1;
             }
-            catch (MalformedClaimException | InvalidJwtException | JoseException ex)
+            else
             {
-                expiresAtMillis = EXPIRES_IMMEDIATELY;
+                wellFormed = Base64Util.isUrlAlphabet(value);
             }
         }
 
-        return expiresAtMillis;
+        return wellFormed && separators == 2 && segmentAt < length;
+    }
+
+    private static boolean isQueryValueDelimiter(
+        byte value)
+    {
+        return value == '&' || value == '#';
     }
 
-    @SuppressWarnings("unchecked")
-    private static Long2ObjectHashMap<Map<String, OAuthAccessGrant>>[] initGrantsBySubjectByAffinityPerRealm()
+    private static String resolveSubject(
+        OAuthVerifiedToken verified)
+    {
+        return verified != null ? verified.subject() : null;
+    }
+
+    private static long expiresAtMillis(
+        OAuthVerifiedToken verified)
     {
-        final Long2ObjectHashMap<Map<String, OAuthAccessGrant>>[] grantsBySubjectByAffinityPerRealm = new Long2ObjectHashMap[16];
-        Arrays.setAll(grantsBySubjectByAffinityPerRealm, i -> new Long2ObjectHashMap<>());
-        return grantsBySubjectByAffinityPerRealm;
+        return verified != null ? verified.expiresAtMillis() : EXPIRES_NEVER;
     }
 
     private static boolean isCorsPreflightRequest(
@@ -15,7 +15,6 @@
  */
 package org.reaktivity.nukleus.oauth.internal.stream;
 
-import java.util.function.Function;
 import java.util.function.LongSupplier;
 import java.util.function.LongUnaryOperator;
 import java.util.function.Supplier;
@@ -23,11 +22,11 @@ import java.util.function.ToIntFunction;
 import java.util.function.ToLongFunction;
 
 import org.agrona.MutableDirectBuffer;
-import org.jose4j.jwk.JsonWebKey;
-import org.jose4j.jws.JsonWebSignature;
 import org.reaktivity.nukleus.buffer.BufferPool;
 import org.reaktivity.nukleus.concurrent.Signaler;
 import org.reaktivity.nukleus.oauth.internal.OAuthConfiguration;
+import org.reaktivity.nukleus.oauth.internal.OAuthKeyLookup;
+import org.reaktivity.nukleus.oauth.internal.OAuthVerifiedToken;
 import org.reaktivity.nukleus.route.RouteManager;
 import org.reaktivity.nukleus.stream.StreamFactory;
 import org.reaktivity.nukleus.stream.StreamFactoryBuilder;
@@ -35,8 +34,9 @@ import org.reaktivity.nukleus.stream.StreamFactoryBuilder;
 public class OAuthProxyFactoryBuilder implements StreamFactoryBuilder
 {
     private final OAuthConfiguration config;
-    private final Function<String, JsonWebKey> lookupKey;
-    private final ToLongFunction<JsonWebSignature> lookupAuthorization;
+    private final OAuthKeyLookup lookupKey;
+    private final ToLongFunction<OAuthVerifiedToken> lookupAuthorization;
+    private final OAuthTokenVerifierPool verifierPool;
 
     private RouteManager router;
     private MutableDirectBuffer writeBuffer;
@@ -48,12 +48,14 @@ public class OAuthProxyFactoryBuilder implements StreamFactoryBuilder
 
     public OAuthProxyFactoryBuilder(
         OAuthConfiguration config,
-        ToLongFunction<JsonWebSignature> lookupAuthorization,
-        Function<String, JsonWebKey> lookupKey)
+        ToLongFunction<OAuthVerifiedToken> lookupAuthorization,
+        OAuthKeyLookup lookupKey,
+        OAuthTokenVerifierPool verifierPool)
     {
         this.config = config;
         this.lookupKey = lookupKey;
         this.lookupAuthorization = lookupAuthorization;
+        this.verifierPool = verifierPool;
     }
 
     @Override
@@ -131,6 +133,7 @@ public class OAuthProxyFactoryBuilder implements StreamFactoryBuilder
             supplyReplyId,
             lookupKey,
             lookupAuthorization,
+            verifierPool,
             signaler,
             router
         );
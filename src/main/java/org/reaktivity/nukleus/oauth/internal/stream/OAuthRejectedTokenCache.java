@@ -0,0 +1,130 @@
+/**
+ * Copyright 2016-2021 The Reaktivity Project
+ *
+ * The Reaktivity Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package org.reaktivity.nukleus.oauth.internal.stream;
+
+import static org.agrona.BitUtil.SIZE_OF_LONG;
+import static org.agrona.BitUtil.findNextPositivePowerOfTwo;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.agrona.DirectBuffer;
+
+final class OAuthRejectedTokenCache
+{
+    private static final int MAX_PROBES = 8;
+    private static final long NO_HASH = 0L;
+
+    private final long seed;
+    private final long ttl;
+    private final int mask;
+    private final long[] hashes;
+    private final long[] expiresAt;
+
+    OAuthRejectedTokenCache(
+        int capacity,
+        long ttl)
+    {
+        final int slots = findNextPositivePowerOfTwo(Math.max(capacity, MAX_PROBES));
+        this.seed = ThreadLocalRandom.current().nextLong();
+        this.ttl = ttl;
+        this.mask = slots - 1;
+        this.hashes = new long[slots];
+        this.expiresAt = new long[slots];
+    }
+
+    boolean contains(
+        DirectBuffer token,
+        long now)
+    {
+        final long hash = hash(token);
+
+        boolean contains = false;
+
+        for (int probe = 0, slot = (int) hash & mask; probe < MAX_PROBES; probe++, slot = (slot + 1) & mask)
+        {
+            if (hashes[slot] == hash)
+            {
+                contains = now < expiresAt[slot];
+                break;
+            }
+            else if (hashes[slot] == NO_HASH)
+            {
+                break;
+            }
+        }
+
+        return contains;
+    }
+
+    void add(
+        DirectBuffer token,
+        long now)
+    {
+        if (ttl > 0L)
+        {
+            final long hash = hash(token);
+
+            int victim = (int) hash & mask;
+            for (int probe = 0, slot = victim; probe < MAX_PROBES; probe++, slot = (slot + 1) & mask)
+            {
+                if (hashes[slot] == hash || hashes[slot] == NO_HASH || expiresAt[slot] <= now)
+                {
+                    victim = slot;
+                    break;
+                }
+
+                if (expiresAt[slot] < expiresAt[victim])
+                {
+                    victim = slot;
+                }
+            }
+
+            hashes[victim] = hash;
+            expiresAt[victim] = now + ttl;
+        }
+    }
+
+    private long hash(
+        DirectBuffer token)
+    {
+        final int length = token.capacity();
+
+        long hash = seed ^ length;
+        int index = 0;
+
+        for (; index + SIZE_OF_LONG <= length; index += SIZE_OF_LONG)
+        {
+            hash = mix(hash ^ token.getLong(index));
+        }
+
+        for (; index < length; index++)
+        {
+            hash = mix(hash ^ token.getByte(index));
+        }
+
+        hash ^= hash >>> 33;
+
+        return hash != NO_HASH ? hash : 1L;
+    }
+
+    private static long mix(
+        long value)
+    {
+        long mixed = value * 0x9E3779B97F4A7C15L;
+        mixed ^= mixed >>> 29;
+        return mixed * 0xBF58476D1CE4E5B9L;
+    }
+}
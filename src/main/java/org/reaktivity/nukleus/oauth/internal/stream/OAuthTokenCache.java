@@ -0,0 +1,69 @@
+/**
+ * Copyright 2016-2021 The Reaktivity Project
+ *
+ * The Reaktivity Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package org.reaktivity.nukleus.oauth.internal.stream;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.agrona.DirectBuffer;
+import org.agrona.concurrent.UnsafeBuffer;
+import org.reaktivity.nukleus.oauth.internal.OAuthVerifiedToken;
+
+final class OAuthTokenCache
+{
+    private final Map<DirectBuffer, OAuthVerifiedToken> tokens;
+
+    OAuthTokenCache(
+        int capacity)
+    {
+        this.tokens = new LinkedHashMap<DirectBuffer, OAuthVerifiedToken>(16, 0.75f, true)
+        {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(
+                Map.Entry<DirectBuffer, OAuthVerifiedToken> eldest)
+            {
+                return size() > capacity;
+            }
+        };
+    }
+
+    OAuthVerifiedToken get(
+        DirectBuffer token,
+        long now)
+    {
+        OAuthVerifiedToken verified = tokens.get(token);
+
+        if (verified != null && (now > verified.expiresAtMillis() || verified.isRevoked()))
+        {
+            tokens.remove(token);
+            verified = null;
+        }
+
+        return verified;
+    }
+
+    void put(
+        DirectBuffer token,
+        OAuthVerifiedToken verified)
+    {
+        final int length = token.capacity();
+        final UnsafeBuffer key = new UnsafeBuffer(new byte[length]);
+        key.putBytes(0, token, 0, length);
+        tokens.put(key, verified);
+    }
+}
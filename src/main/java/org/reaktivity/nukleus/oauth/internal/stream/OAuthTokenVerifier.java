@@ -0,0 +1,302 @@
+/**
+ * Copyright 2016-2021 The Reaktivity Project
+ *
+ * The Reaktivity Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package org.reaktivity.nukleus.oauth.internal.stream;
+
+import static java.nio.charset.StandardCharsets.US_ASCII;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.agrona.DirectBuffer;
+import org.agrona.concurrent.UnsafeBuffer;
+import org.jose4j.jws.JsonWebSignature;
+import org.jose4j.jwt.JwtClaims;
+import org.jose4j.jwt.MalformedClaimException;
+import org.jose4j.jwt.consumer.InvalidJwtException;
+import org.jose4j.lang.JoseException;
+import org.reaktivity.nukleus.oauth.internal.OAuthKey;
+import org.reaktivity.nukleus.oauth.internal.OAuthKeyLookup;
+import org.reaktivity.nukleus.oauth.internal.OAuthVerifiedToken;
+import org.reaktivity.nukleus.oauth.internal.util.Base64Util;
+import org.reaktivity.nukleus.oauth.internal.util.BufferUtil;
+import org.reaktivity.nukleus.oauth.internal.util.JwtClaimsReader;
+import org.reaktivity.nukleus.oauth.internal.util.JwtHeaderReader;
+
+final class OAuthTokenVerifier
+{
+    private static final byte[] SEGMENT_SEPARATOR = ".".getBytes(US_ASCII);
+
+    private static final int MAX_HEADERS = 64;
+
+    private static final TokenHeader INVALID_HEADER = new TokenHeader(null);
+    private static final TokenHeader JOSE_HEADER = new TokenHeader(null);
+
+    private final JwtHeaderReader headerRO = new JwtHeaderReader();
+    private final UnsafeBuffer headerKeyRO = new UnsafeBuffer(new byte[0]);
+    private final UnsafeBuffer kidRO = new UnsafeBuffer(new byte[0]);
+    private final JwtClaimsReader claimsRO;
+
+    private final OAuthKeyLookup lookupKey;
+    private final String challengeTimeoutClaimName;
+    private final UnsafeBuffer headerBuffer;
+    private final UnsafeBuffer payloadBuffer;
+    private final UnsafeBuffer signatureBuffer;
+    private final byte[] signingInput;
+    private final Map<DirectBuffer, TokenHeader> headers;
+
+    private long headersGeneration;
+
+    OAuthTokenVerifier(
+        OAuthKeyLookup lookupKey,
+        String challengeTimeoutClaimName,
+        int maxTokenLength)
+    {
+        this.lookupKey = lookupKey;
+        this.challengeTimeoutClaimName = challengeTimeoutClaimName;
+        this.claimsRO = new JwtClaimsReader(challengeTimeoutClaimName);
+        this.headerBuffer = new UnsafeBuffer(new byte[maxTokenLength]);
+        this.payloadBuffer = new UnsafeBuffer(new byte[maxTokenLength]);
+        this.signatureBuffer = new UnsafeBuffer(new byte[maxTokenLength]);
+        this.signingInput = new byte[maxTokenLength];
+        this.headers = new LinkedHashMap<DirectBuffer, TokenHeader>(16, 0.75f, true)
+        {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(
+                Map.Entry<DirectBuffer, TokenHeader> eldest)
+            {
+                return size() > MAX_HEADERS;
+            }
+        };
+    }
+
+    OAuthVerifiedToken verify(
+        DirectBuffer token,
+        long now)
+    {
+        final int limit = token.capacity();
+        final int payloadAt = BufferUtil.limitOfBytes(token, 0, limit, SEGMENT_SEPARATOR);
+        final int signatureAt = payloadAt != -1 ? BufferUtil.limitOfBytes(token, payloadAt, limit, SEGMENT_SEPARATOR) : -1;
+
+        OAuthVerifiedToken verified = null;
+
+        if (signatureAt != -1 && limit <= signingInput.length &&
+            BufferUtil.limitOfBytes(token, signatureAt, limit, SEGMENT_SEPARATOR) == -1)
+        {
+            final TokenHeader header = resolveHeader(token, payloadAt - 1);
+
+            if (header == JOSE_HEADER)
+            {
+                verified = verifyWithJose(token, now);
+            }
+            else if (header != INVALID_HEADER)
+            {
+                verified = header.key.canVerify()
+                    ? verifyWithKey(token, header.key, payloadAt, signatureAt, now)
+                    : verifyWithJose(token, now);
+            }
+        }
+
+        return verified;
+    }
+
+    private TokenHeader resolveHeader(
+        DirectBuffer token,
+        int headerLimit)
+    {
+        final long generation = lookupKey.generation();
+        if (generation != headersGeneration)
+        {
+            // unknown kids may now be known, mismatched algorithms may now match
+            headers.values().removeIf(h -> h == INVALID_HEADER);
+            headersGeneration = generation;
+        }
+
+        headerKeyRO.wrap(token, 0, headerLimit);
+
+        TokenHeader header = headers.get(headerKeyRO);
+
+        if (header == null || header.key != null && header.key.isRevoked())
+        {
+            header = decodeHeader(token, headerLimit);
+
+            final UnsafeBuffer headerKey = new UnsafeBuffer(new byte[headerLimit]);
+            headerKey.putBytes(0, token, 0, headerLimit);
+            headers.put(headerKey, header);
+        }
+
+        return header;
+    }
+
+    private TokenHeader decodeHeader(
+        DirectBuffer token,
+        int headerLimit)
+    {
+        final int headerLength = Base64Util.decodeUrl(token, 0, headerLimit, headerBuffer, 0);
+        final JwtHeaderReader header = headerLength != -1 ? headerRO.tryWrap(headerBuffer, 0, headerLength) : null;
+
+        TokenHeader resolved = INVALID_HEADER;
+
+        if (header != null)
+        {
+            if (header.keyIdLength() != -1 && header.algorithmLength() != -1)
+            {
+                final OAuthKey key = lookupKey.lookup(headerBuffer, header.keyIdOffset(), header.keyIdLength());
+
+                if (key != null && equalsAscii(headerBuffer, header.algorithmOffset(), header.algorithmLength(), key.algorithm()))
+                {
+                    resolved = new TokenHeader(key);
+                }
+            }
+        }
+        else if (headerLength != -1)
+        {
+            resolved = JOSE_HEADER;
+        }
+
+        return resolved;
+    }
+
+    private OAuthVerifiedToken verifyWithKey(
+        DirectBuffer token,
+        OAuthKey key,
+        int payloadAt,
+        int signatureAt,
+        long now)
+    {
+        OAuthVerifiedToken verified = null;
+
+        final int payloadLength = Base64Util.decodeUrl(token, payloadAt, signatureAt - 1, payloadBuffer, 0);
+        final OAuthVerifiedToken candidate = payloadLength != -1 ? readClaims(key, payloadLength) : null;
+        if (candidate != null && candidate.isValidAt(now) && verifySignature(token, key, signatureAt))
+        {
+            verified = candidate;
+        }
+
+        return verified;
+    }
+
+    private OAuthVerifiedToken verifyWithJose(
+        DirectBuffer token,
+        long now)
+    {
+        OAuthVerifiedToken verified = null;
+
+        try
+        {
+            final JsonWebSignature signature = new JsonWebSignature();
+            signature.setCompactSerialization(token.getStringWithoutLengthUtf8(0, token.capacity()));
+            final String kid = signature.getKeyIdHeaderValue();
+            final String algorithm = signature.getAlgorithmHeaderValue();
+            final OAuthKey key = kid != null ? lookupKey(kid) : null;
+            if (algorithm != null && key != null && algorithm.equals(key.algorithm()))
+            {
+                final JwtClaims claims = JwtClaims.parse(signature.getUnverifiedPayload());
+                final OAuthVerifiedToken candidate = OAuthVerifiedToken.of(kid, key, claims, challengeTimeoutClaimName);
+                if (candidate.isValidAt(now))
+                {
+                    signature.setKey(key.key());
+
+                    if (signature.verifySignature())
+                    {
+                        verified = candidate;
+                    }
+                }
+            }
+        }
+        catch (JoseException | MalformedClaimException | InvalidJwtException ex)
+        {
+            // invalid token
+        }
+
+        return verified;
+    }
+
+    private boolean verifySignature(
+        DirectBuffer token,
+        OAuthKey key,
+        int signatureAt)
+    {
+        final int signingInputLength = signatureAt - 1;
+        token.getBytes(0, signingInput, 0, signingInputLength);
+        final int signatureLength = Base64Util.decodeUrl(token, signatureAt, token.capacity(), signatureBuffer, 0);
+        return signatureLength != -1 &&
+               key.verify(signingInput, signingInputLength, signatureBuffer.byteArray(), signatureLength);
+    }
+
+    private OAuthVerifiedToken readClaims(
+        OAuthKey key,
+        int payloadLength)
+    {
+        OAuthVerifiedToken verified = null;
+
+        final JwtClaimsReader claims = claimsRO.tryWrap(payloadBuffer, 0, payloadLength);
+        if (claims != null)
+        {
+            verified = OAuthVerifiedToken.of(key.kid(), key, claims);
+        }
+        else
+        {
+            try
+            {
+                final String payload = payloadBuffer.getStringWithoutLengthUtf8(0, payloadLength);
+                verified = OAuthVerifiedToken.of(key.kid(), key, JwtClaims.parse(payload), challengeTimeoutClaimName);
+            }
+            catch (MalformedClaimException | InvalidJwtException ex)
+            {
+                // invalid claims
+            }
+        }
+
+        return verified;
+    }
+
+    private OAuthKey lookupKey(
+        String kid)
+    {
+        kidRO.wrap(kid.getBytes(UTF_8));
+        return lookupKey.lookup(kidRO, 0, kidRO.capacity());
+    }
+
+    private static boolean equalsAscii(
+        DirectBuffer buffer,
+        int offset,
+        int length,
+        String value)
+    {
+        boolean equals = length == value.length();
+
+        for (int index = 0; equals && index < length; index++)
+        {
+            equals = buffer.getByte(offset + index) == value.charAt(index);
+        }
+
+        return equals;
+    }
+
+    private static final class TokenHeader
+    {
+        private final OAuthKey key;
+
+        private TokenHeader(
+            OAuthKey key)
+        {
+            this.key = key;
+        }
+    }
+}
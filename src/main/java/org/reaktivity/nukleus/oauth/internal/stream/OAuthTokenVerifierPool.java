@@ -0,0 +1,264 @@
+/**
+ * Copyright 2016-2021 The Reaktivity Project
+ *
+ * The Reaktivity Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package org.reaktivity.nukleus.oauth.internal.stream;
+
+import static org.agrona.BitUtil.SIZE_OF_INT;
+import static org.agrona.BitUtil.SIZE_OF_LONG;
+import static org.agrona.concurrent.ringbuffer.RingBufferDescriptor.TRAILER_LENGTH;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+import java.util.function.Supplier;
+
+import org.agrona.DirectBuffer;
+import org.agrona.MutableDirectBuffer;
+import org.agrona.collections.IntArrayQueue;
+import org.agrona.concurrent.BackoffIdleStrategy;
+import org.agrona.concurrent.IdleStrategy;
+import org.agrona.concurrent.MessageHandler;
+import org.agrona.concurrent.UnsafeBuffer;
+import org.agrona.concurrent.ringbuffer.ManyToOneRingBuffer;
+import org.agrona.concurrent.ringbuffer.RingBuffer;
+import org.reaktivity.nukleus.oauth.internal.OAuthConfiguration;
+import org.reaktivity.nukleus.oauth.internal.OAuthKeyLookup;
+import org.reaktivity.nukleus.oauth.internal.OAuthVerifiedToken;
+
+public final class OAuthTokenVerifierPool implements AutoCloseable
+{
+    static final int NO_INDEX = -1;
+
+    private static final int MAX_PENDING = 1024;
+
+    private static final int VERIFY_MSG_TYPE_ID = 1;
+    private static final int VERIFIED_MSG_TYPE_ID = 2;
+
+    private static final int REQUEST_RING_CAPACITY = 1 << 20;
+    private static final int RESPONSE_RING_CAPACITY = 1 << 16;
+
+    private static final int NOW_OFFSET = 0;
+    private static final int CLIENT_OFFSET = NOW_OFFSET + SIZE_OF_LONG;
+    private static final int INDEX_OFFSET = CLIENT_OFFSET + SIZE_OF_INT;
+    private static final int TOKEN_OFFSET = INDEX_OFFSET + SIZE_OF_INT;
+
+    private final RingBuffer[] requests;
+    private final Thread[] threads;
+
+    private volatile Client[] clients = new Client[0];
+
+    public OAuthTokenVerifierPool(
+        OAuthConfiguration config,
+        OAuthKeyLookup lookupKey)
+    {
+        this(config.verifyWorkers(), () -> new OAuthTokenVerifier(lookupKey,
+                config.getCanonicalClaimNameChallengeTimeout(), config.tokenMaxLength()));
+    }
+
+    OAuthTokenVerifierPool(
+        int workers,
+        Supplier<OAuthTokenVerifier> supplyVerifier)
+    {
+        this.requests = new RingBuffer[workers];
+        this.threads = new Thread[workers];
+
+        for (int worker = 0; worker < workers; worker++)
+        {
+            final RingBuffer requests = new ManyToOneRingBuffer(newRingBuffer(REQUEST_RING_CAPACITY));
+            final Thread thread = new Thread(new Worker(requests, supplyVerifier.get()), "oauth-verifier-" + worker);
+            thread.setDaemon(true);
+            thread.start();
+            this.requests[worker] = requests;
+            this.threads[worker] = thread;
+        }
+    }
+
+    synchronized Client newClient()
+    {
+        final Client[] clients = this.clients;
+        final Client client = new Client(clients.length);
+        final Client[] newClients = Arrays.copyOf(clients, clients.length + 1);
+        newClients[client.clientId] = client;
+        this.clients = newClients;
+        return client;
+    }
+
+    @Override
+    public void close() throws Exception
+    {
+        for (Thread thread : threads)
+        {
+            thread.interrupt();
+        }
+
+        for (Thread thread : threads)
+        {
+            thread.join();
+        }
+    }
+
+    private static UnsafeBuffer newRingBuffer(
+        int capacity)
+    {
+        return new UnsafeBuffer(ByteBuffer.allocateDirect(capacity + TRAILER_LENGTH));
+    }
+
+    // confined to the elektron thread of one stream factory, except for results written by workers before responding
+    final class Client
+    {
+        private final int clientId;
+        private final RingBuffer responses;
+        private final OAuthVerifiedToken[] results;
+        private final IntArrayQueue indices;
+        private final MutableDirectBuffer requestBuffer;
+        private final MessageHandler onResponse;
+
+        private IntConsumer onVerified;
+
+        private Client(
+            int clientId)
+        {
+            this.clientId = clientId;
+            this.responses = new ManyToOneRingBuffer(newRingBuffer(RESPONSE_RING_CAPACITY));
+            this.results = new OAuthVerifiedToken[MAX_PENDING];
+            this.indices = new IntArrayQueue(MAX_PENDING, NO_INDEX);
+            this.requestBuffer = new UnsafeBuffer(new byte[requests.length > 0 ? requests[0].maxMsgLength() : 0]);
+            this.onResponse = this::onResponse;
+
+            for (int index = 0; index < MAX_PENDING; index++)
+            {
+                indices.addInt(index);
+            }
+        }
+
+        int submit(
+            DirectBuffer token,
+            long now)
+        {
+            final int tokenLength = token.capacity();
+
+            int index = NO_INDEX;
+
+            if (TOKEN_OFFSET + tokenLength <= requestBuffer.capacity())
+            {
+                index = indices.pollInt();
+            }
+
+            if (index != NO_INDEX)
+            {
+                requestBuffer.putLong(NOW_OFFSET, now);
+                requestBuffer.putInt(CLIENT_OFFSET, clientId);
+                requestBuffer.putInt(INDEX_OFFSET, index);
+                requestBuffer.putBytes(TOKEN_OFFSET, token, 0, tokenLength);
+
+                final RingBuffer worker = requests[(clientId + index) % requests.length];
+                if (!worker.write(VERIFY_MSG_TYPE_ID, requestBuffer, 0, TOKEN_OFFSET + tokenLength))
+                {
+                    indices.addInt(index);
+                    index = NO_INDEX;
+                }
+            }
+
+            return index;
+        }
+
+        int drain(
+            IntConsumer onVerified)
+        {
+            this.onVerified = onVerified;
+            return responses.read(onResponse);
+        }
+
+        OAuthVerifiedToken release(
+            int index)
+        {
+            final OAuthVerifiedToken verified = results[index];
+            results[index] = null;
+            indices.addInt(index);
+            return verified;
+        }
+
+        private void onResponse(
+            int msgTypeId,
+            MutableDirectBuffer buffer,
+            int index,
+            int length)
+        {
+            assert msgTypeId == VERIFIED_MSG_TYPE_ID;
+            onVerified.accept(buffer.getInt(index));
+        }
+    }
+
+    private final class Worker implements Runnable
+    {
+        private final RingBuffer requests;
+        private final OAuthTokenVerifier verifier;
+        private final UnsafeBuffer tokenRO = new UnsafeBuffer(new byte[0]);
+        private final MutableDirectBuffer responseBuffer = new UnsafeBuffer(new byte[SIZE_OF_INT]);
+        private final IdleStrategy idleStrategy = new BackoffIdleStrategy(64, 64, 1_000L, 100_000L);
+        private final MessageHandler onRequest = this::onRequest;
+
+        private Worker(
+            RingBuffer requests,
+            OAuthTokenVerifier verifier)
+        {
+            this.requests = requests;
+            this.verifier = verifier;
+        }
+
+        @Override
+        public void run()
+        {
+            while (!Thread.currentThread().isInterrupted())
+            {
+                idleStrategy.idle(requests.read(onRequest));
+            }
+        }
+
+        private void onRequest(
+            int msgTypeId,
+            MutableDirectBuffer buffer,
+            int offset,
+            int length)
+        {
+            assert msgTypeId == VERIFY_MSG_TYPE_ID;
+
+            final long now = buffer.getLong(offset + NOW_OFFSET);
+            final Client client = clients[buffer.getInt(offset + CLIENT_OFFSET)];
+            final int index = buffer.getInt(offset + INDEX_OFFSET);
+            tokenRO.wrap(buffer, offset + TOKEN_OFFSET, length - TOKEN_OFFSET);
+
+            OAuthVerifiedToken verified = null;
+
+            try
+            {
+                verified = verifier.verify(tokenRO, now);
+            }
+            catch (RuntimeException ex)
+            {
+                // reject token, pending stream still completes
+            }
+
+            client.results[index] = verified;
+
+            responseBuffer.putInt(0, index);
+            while (!client.responses.write(VERIFIED_MSG_TYPE_ID, responseBuffer, 0, SIZE_OF_INT) &&
+                   !Thread.currentThread().isInterrupted())
+            {
+                Thread.onSpinWait();
+            }
+        }
+    }
+}
@@ -0,0 +1,101 @@
+/**
+ * Copyright 2016-2021 The Reaktivity Project
+ *
+ * The Reaktivity Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package org.reaktivity.nukleus.oauth.internal.util;
+
+import static java.nio.charset.StandardCharsets.US_ASCII;
+
+import java.util.Arrays;
+
+import org.agrona.DirectBuffer;
+import org.agrona.MutableDirectBuffer;
+
+public final class Base64Util
+{
+    private static final byte[] BASE64_URL_ALPHABET =
+            "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789-_".getBytes(US_ASCII);
+
+    private static final byte INVALID = -1;
+
+    private static final byte[] BASE64_URL_DECODE = new byte[256];
+
+    static
+    {
+        Arrays.fill(BASE64_URL_DECODE, INVALID);
+        for (int i = 0; i < BASE64_URL_ALPHABET.length; i++)
+        {
+            BASE64_URL_DECODE[BASE64_URL_ALPHABET[i]] = (byte) i;
+        }
+    }
+
+    public static int decodedLengthUrl(
+        int encodedLength)
+    {
+        final int remainder = encodedLength & 0x03;
+        return remainder != 1 ? (encodedLength >> 2) * 3 + Math.max(remainder - 1, 0) : -1;
+    }
+
+    public static boolean isUrlAlphabet(
+        byte value)
+    {
+        return BASE64_URL_DECODE[value & 0xff] != INVALID;
+    }
+
+    public static int decodeUrl(
+        DirectBuffer src,
+        int offset,
+        int limit,
+        MutableDirectBuffer dst,
+        int dstOffset)
+    {
+        final int length = decodedLengthUrl(limit - offset);
+
+        if (length == -1 || dstOffset + length > dst.capacity())
+        {
+            return -1;
+        }
+
+        int progress = dstOffset;
+        int bits = 0;
+        int bitCount = 0;
+        for (int cursor = offset; cursor < limit; cursor++)
+        {
+            final int value = BASE64_URL_DECODE[src.getByte(cursor) & 0xff];
+            if (value == INVALID)
+            {
+                return -1;
+            }
+
+            bits = (bits << 6) | value;
+            bitCount += 6;
+
+            if (bitCount >= 8)
+            {
+                bitCount -= 8;
+                dst.putByte(progress++, (byte) (bits >> bitCount));
+                bits &= (1 << bitCount) - 1;
+            }
+        }
+
+        assert progress - dstOffset == length;
+
+        return length;
+    }
+
+    private Base64Util()
+    {
+        // utility class, no instances
+    }
+}
@@ -0,0 +1,242 @@
+/**
+ * Copyright 2016-2021 The Reaktivity Project
+ *
+ * The Reaktivity Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package org.reaktivity.nukleus.oauth.internal.util;
+
+import static java.nio.charset.StandardCharsets.US_ASCII;
+
+import org.agrona.DirectBuffer;
+
+final class JsonUtil
+{
+    private static final byte[] TRUE = "true".getBytes(US_ASCII);
+    private static final byte[] FALSE = "false".getBytes(US_ASCII);
+    private static final byte[] NULL = "null".getBytes(US_ASCII);
+
+    static int stringValueLimit(
+        DirectBuffer buffer,
+        int offset,
+        int limit)
+    {
+        int progress = -1;
+
+        if (offset < limit && buffer.getByte(offset) == '"')
+        {
+            final int stringLimit = stringLimit(buffer, offset + 1, limit);
+            progress = stringLimit != -1 ? stringLimit + 1 : -1;
+        }
+
+        return progress;
+    }
+
+    static int stringLimit(
+        DirectBuffer buffer,
+        int offset,
+        int limit)
+    {
+        int progress = offset;
+
+        while (progress < limit)
+        {
+            final byte value = buffer.getByte(progress);
+            if (value == '"')
+            {
+                return progress;
+            }
+            else if (value == '\\' || (value >= 0 && value < 0x20))
+            {
+                break;
+            }
+            progress++;
+        }
+
+        return -1;
+    }
+
+    static int skipValue(
+        DirectBuffer buffer,
+        int offset,
+        int limit)
+    {
+        int progress = -1;
+
+        if (offset < limit)
+        {
+            final byte value = buffer.getByte(offset);
+            switch (value)
+            {
+            case '"':
+                progress = skipString(buffer, offset + 1, limit);
+                break;
+            case '{':
+            case '[':
+                progress = skipContainer(buffer, offset, limit);
+                break;
+            case 't':
+                progress = skipLiteral(buffer, offset, limit, TRUE);
+                break;
+            case 'f':
+                progress = skipLiteral(buffer, offset, limit, FALSE);
+                break;
+            case 'n':
+                progress = skipLiteral(buffer, offset, limit, NULL);
+                break;
+            default:
+                progress = skipNumber(buffer, offset, limit);
+                break;
+            }
+        }
+
+        return progress;
+    }
+
+    static boolean isValueLimit(
+        DirectBuffer buffer,
+        int offset,
+        int limit)
+    {
+        boolean valueLimit = offset == limit;
+
+        if (!valueLimit)
+        {
+            final byte value = buffer.getByte(offset);
+            valueLimit = value == ',' || value == '}' || value == ']' || isWhitespace(value);
+        }
+
+        return valueLimit;
+    }
+
+    static int skipWhitespace(
+        DirectBuffer buffer,
+        int offset,
+        int limit)
+    {
+        int progress = offset;
+
+        while (progress < limit && isWhitespace(buffer.getByte(progress)))
+        {
+            progress++;
+        }
+
+        return progress;
+    }
+
+    private static int skipString(
+        DirectBuffer buffer,
+        int offset,
+        int limit)
+    {
+        int progress = offset;
+
+        while (progress < limit)
+        {
+            final byte value = buffer.getByte(progress);
+            if (value == '"')
+            {
+                return progress + 1;
+            }
+            progress += value == '\\' ? 2 : 1;
+        }
+
+        return -1;
+    }
+
+    private static int skipContainer(
+        DirectBuffer buffer,
+        int offset,
+        int limit)
+    {
+        int progress = offset;
+        int depth = 0;
+
+        while (progress < limit)
+        {
+            final byte value = buffer.getByte(progress);
+            switch (value)
+            {
+            case '"':
+                progress = skipString(buffer, progress + 1, limit);
+                if (progress == -1)
+                {
+                    return -1;
+                }
+                continue;
+            case '{':
+            case '[':
+                depth++;
+                break;
+            case '}':
+            case ']':
+                depth--;
+                break;
+            default:
+                break;
+            }
+
+            progress++;
+
+            if (depth == 0)
+            {
+                return progress;
+            }
+        }
+
+        return -1;
+    }
+
+    private static int skipLiteral(
+        DirectBuffer buffer,
+        int offset,
+        int limit,
+        byte[] literal)
+    {
+        final int literalLimit = offset + literal.length;
+        return literalLimit <= limit &&
+               BufferUtil.equals(buffer, offset, literalLimit, literal) &&
+               isValueLimit(buffer, literalLimit, limit) ? literalLimit : -1;
+    }
+
+    private static int skipNumber(
+        DirectBuffer buffer,
+        int offset,
+        int limit)
+    {
+        int progress = offset;
+
+        while (progress < limit && isNumberPart(buffer.getByte(progress)))
+        {
+            progress++;
+        }
+
+        return progress > offset && isValueLimit(buffer, progress, limit) ? progress : -1;
+    }
+
+    private static boolean isWhitespace(
+        byte value)
+    {
+        return value == ' ' || value == '\t' || value == '\n' || value == '\r';
+    }
+
+    private static boolean isNumberPart(
+        byte value)
+    {
+        return (value >= '0' && value <= '9') || value == '-' || value == '+' || value == '.' || value == 'e' || value == 'E';
+    }
+
+    private JsonUtil()
+    {
+        // utility class, no instances
+    }
+}
@@ -0,0 +1,421 @@
+/**
+ * Copyright 2016-2021 The Reaktivity Project
+ *
+ * The Reaktivity Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package org.reaktivity.nukleus.oauth.internal.util;
+
+import static java.nio.charset.StandardCharsets.US_ASCII;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.reaktivity.nukleus.oauth.internal.util.JsonUtil.isValueLimit;
+import static org.reaktivity.nukleus.oauth.internal.util.JsonUtil.skipValue;
+import static org.reaktivity.nukleus.oauth.internal.util.JsonUtil.skipWhitespace;
+import static org.reaktivity.nukleus.oauth.internal.util.JsonUtil.stringLimit;
+import static org.reaktivity.nukleus.oauth.internal.util.JsonUtil.stringValueLimit;
+
+import org.agrona.DirectBuffer;
+
+/**
+ * Single pass reader for the JWT claims used by this nukleus.
+ * <p>
+ * {@link #tryWrap(DirectBuffer, int, int)} returns {@code null} when the claims are not a flat JSON object
+ * with the expected claim types, when a claim of interest contains escape sequences, or when a claim of
+ * interest appears more than once, so that callers can fall back to a complete JSON parser.
+ */
+public final class JwtClaimsReader
+{
+    public static final int MAX_AUDIENCES = 8;
+
+    private static final byte[] ISSUER = "iss".getBytes(US_ASCII);
+    private static final byte[] SUBJECT = "sub".getBytes(US_ASCII);
+    private static final byte[] AUDIENCE = "aud".getBytes(US_ASCII);
+    private static final byte[] EXPIRATION_TIME = "exp".getBytes(US_ASCII);
+    private static final byte[] NOT_BEFORE = "nbf".getBytes(US_ASCII);
+    private static final byte[] SCOPE = "scope".getBytes(US_ASCII);
+
+    private static final int MAX_NUMBER_DIGITS = 18;
+
+    private final byte[] challengeTimeoutName;
+    private final int[] audienceOffsets = new int[MAX_AUDIENCES];
+    private final int[] audienceLengths = new int[MAX_AUDIENCES];
+
+    private DirectBuffer buffer;
+    private int limit;
+
+    private int issuerOffset;
+    private int issuerLength;
+    private int subjectOffset;
+    private int subjectLength;
+    private int scopeOffset;
+    private int scopeLength;
+    private int audienceCount;
+    private boolean hasAudience;
+    private boolean hasExpirationTime;
+    private long expirationTime;
+    private boolean hasNotBefore;
+    private long notBefore;
+    private boolean hasChallengeTimeout;
+    private long challengeTimeout;
+
+    private long number;
+
+    public JwtClaimsReader(
+        String challengeTimeoutName)
+    {
+        this.challengeTimeoutName = challengeTimeoutName != null ? challengeTimeoutName.getBytes(UTF_8) : null;
+    }
+
+    public JwtClaimsReader tryWrap(
+        DirectBuffer buffer,
+        int offset,
+        int limit)
+    {
+        this.buffer = buffer;
+        this.limit = limit;
+        this.issuerLength = -1;
+        this.subjectLength = -1;
+        this.scopeLength = -1;
+        this.audienceCount = 0;
+        this.hasAudience = false;
+        this.hasExpirationTime = false;
+        this.hasNotBefore = false;
+        this.hasChallengeTimeout = false;
+
+        int progress = skipWhitespace(buffer, offset, limit);
+        if (progress >= limit || buffer.getByte(progress) != '{')
+        {
+            return null;
+        }
+
+        progress = skipWhitespace(buffer, progress + 1, limit);
+        if (progress < limit && buffer.getByte(progress) == '}')
+        {
+            progress++;
+        }
+        else
+        {
+            progress = readMembers(progress);
+        }
+
+        return progress != -1 && skipWhitespace(buffer, progress, limit) == limit ? this : null;
+    }
+
+    public DirectBuffer buffer()
+    {
+        return buffer;
+    }
+
+    public int issuerOffset()
+    {
+        return issuerOffset;
+    }
+
+    public int issuerLength()
+    {
+        return issuerLength;
+    }
+
+    public int subjectOffset()
+    {
+        return subjectOffset;
+    }
+
+    public int subjectLength()
+    {
+        return subjectLength;
+    }
+
+    public int scopeOffset()
+    {
+        return scopeOffset;
+    }
+
+    public int scopeLength()
+    {
+        return scopeLength;
+    }
+
+    public int audienceCount()
+    {
+        return audienceCount;
+    }
+
+    public int audienceOffset(
+        int index)
+    {
+        return audienceOffsets[index];
+    }
+
+    public int audienceLength(
+        int index)
+    {
+        return audienceLengths[index];
+    }
+
+    public boolean hasExpirationTime()
+    {
+        return hasExpirationTime;
+    }
+
+    public long expirationTime()
+    {
+        return expirationTime;
+    }
+
+    public boolean hasNotBefore()
+    {
+        return hasNotBefore;
+    }
+
+    public long notBefore()
+    {
+        return notBefore;
+    }
+
+    public boolean hasChallengeTimeout()
+    {
+        return hasChallengeTimeout;
+    }
+
+    public long challengeTimeout()
+    {
+        return challengeTimeout;
+    }
+
+    private int readMembers(
+        int offset)
+    {
+        int progress = offset;
+
+        while (progress != -1)
+        {
+            if (progress >= limit || buffer.getByte(progress) != '"')
+            {
+                progress = -1;
+                break;
+            }
+
+            final int nameOffset = progress + 1;
+            final int nameLimit = stringLimit(buffer, nameOffset, limit);
+            if (nameLimit == -1)
+            {
+                progress = -1;
+                break;
+            }
+
+            progress = skipWhitespace(buffer, nameLimit + 1, limit);
+            if (progress >= limit || buffer.getByte(progress) != ':')
+            {
+                progress = -1;
+                break;
+            }
+
+            progress = readMember(nameOffset, nameLimit, skipWhitespace(buffer, progress + 1, limit));
+            progress = progress != -1 ? skipWhitespace(buffer, progress, limit) : -1;
+            if (progress == -1 || progress >= limit)
+            {
+                progress = -1;
+                break;
+            }
+
+            final byte delimiter = buffer.getByte(progress);
+            if (delimiter == '}')
+            {
+                progress++;
+                break;
+            }
+            else if (delimiter == ',')
+            {
+                progress = skipWhitespace(buffer, progress + 1, limit);
+            }
+            else
+            {
+                progress = -1;
+            }
+        }
+
+        return progress;
+    }
+
+    private int readMember(
+        int nameOffset,
+        int nameLimit,
+        int valueOffset)
+    {
+        int progress = -1;
+
+        if (BufferUtil.equals(buffer, nameOffset, nameLimit, ISSUER))
+        {
+            progress = issuerLength == -1 ? stringValueLimit(buffer, valueOffset, limit) : -1;
+            if (progress != -1)
+            {
+                issuerOffset = valueOffset + 1;
+                issuerLength = progress - issuerOffset - 1;
+            }
+        }
+        else if (BufferUtil.equals(buffer, nameOffset, nameLimit, SUBJECT))
+        {
+            progress = subjectLength == -1 ? stringValueLimit(buffer, valueOffset, limit) : -1;
+            if (progress != -1)
+            {
+                subjectOffset = valueOffset + 1;
+                subjectLength = progress - subjectOffset - 1;
+            }
+        }
+        else if (BufferUtil.equals(buffer, nameOffset, nameLimit, SCOPE))
+        {
+            progress = scopeLength == -1 ? stringValueLimit(buffer, valueOffset, limit) : -1;
+            if (progress != -1)
+            {
+                scopeOffset = valueOffset + 1;
+                scopeLength = progress - scopeOffset - 1;
+            }
+        }
+        else if (BufferUtil.equals(buffer, nameOffset, nameLimit, AUDIENCE))
+        {
+            progress = !hasAudience ? readAudiences(valueOffset) : -1;
+            hasAudience = progress != -1;
+        }
+        else if (BufferUtil.equals(buffer, nameOffset, nameLimit, EXPIRATION_TIME))
+        {
+            progress = !hasExpirationTime ? integerValueLimit(valueOffset) : -1;
+            hasExpirationTime = progress != -1;
+            expirationTime = number;
+        }
+        else if (BufferUtil.equals(buffer, nameOffset, nameLimit, NOT_BEFORE))
+        {
+            progress = !hasNotBefore ? integerValueLimit(valueOffset) : -1;
+            hasNotBefore = progress != -1;
+            notBefore = number;
+        }
+        else if (challengeTimeoutName != null &&
+                 BufferUtil.equals(buffer, nameOffset, nameLimit, challengeTimeoutName))
+        {
+            progress = !hasChallengeTimeout ? integerValueLimit(valueOffset) : -1;
+            hasChallengeTimeout = progress != -1 && number >= Integer.MIN_VALUE && number <= Integer.MAX_VALUE;
+            progress = hasChallengeTimeout ? progress : -1;
+            challengeTimeout = number;
+        }
+        else
+        {
+            progress = skipValue(buffer, valueOffset, limit);
+        }
+
+        return progress;
+    }
+
+    private int readAudiences(
+        int offset)
+    {
+        int progress = -1;
+        audienceCount = 0;
+
+        if (offset < limit && buffer.getByte(offset) == '"')
+        {
+            progress = stringValueLimit(buffer, offset, limit);
+            if (progress != -1)
+            {
+                addAudience(offset + 1, progress - 1);
+            }
+        }
+        else if (offset < limit && buffer.getByte(offset) == '[')
+        {
+            progress = skipWhitespace(buffer, offset + 1, limit);
+            if (progress < limit && buffer.getByte(progress) == ']')
+            {
+                progress++;
+            }
+            else
+            {
+                while (progress != -1)
+                {
+                    final int valueOffset = progress;
+                    progress = stringValueLimit(buffer, valueOffset, limit);
+                    if (progress == -1 || audienceCount == MAX_AUDIENCES)
+                    {
+                        progress = -1;
+                        break;
+                    }
+
+                    addAudience(valueOffset + 1, progress - 1);
+
+                    progress = skipWhitespace(buffer, progress, limit);
+                    if (progress >= limit)
+                    {
+                        progress = -1;
+                    }
+                    else if (buffer.getByte(progress) == ']')
+                    {
+                        progress++;
+                        break;
+                    }
+                    else if (buffer.getByte(progress) == ',')
+                    {
+                        progress = skipWhitespace(buffer, progress + 1, limit);
+                    }
+                    else
+                    {
+                        progress = -1;
+                    }
+                }
+            }
+        }
+
+        return progress;
+    }
+
+    private void addAudience(
+        int offset,
+        int limit)
+    {
+        audienceOffsets[audienceCount] = offset;
+        audienceLengths[audienceCount] = limit - offset;
+        audienceCount++;
+    }
+
+    private int integerValueLimit(
+        int offset)
+    {
+        int progress = offset;
+        boolean negative = false;
+
+        if (progress < limit && buffer.getByte(progress) == '-')
+        {
+            negative = true;
+            progress++;
+        }
+
+        final int digitsAt = progress;
+        long value = 0L;
+        while (progress < limit && progress - digitsAt <= MAX_NUMBER_DIGITS)
+        {
+            final byte digit = buffer.getByte(progress);
+            if (digit < '0' || digit > '9')
+            {
+                break;
+            }
+            value = value * 10 + (digit - '0');
+            progress++;
+        }
+
+        final int digits = progress - digitsAt;
+        if (digits == 0 || digits > MAX_NUMBER_DIGITS || !isValueLimit(buffer, progress, limit))
+        {
+            return -1;
+        }
+
+        number = negative ? -value : value;
+
+        return progress;
+    }
+}
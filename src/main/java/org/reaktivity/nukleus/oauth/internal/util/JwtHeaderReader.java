@@ -0,0 +1,189 @@
+/**
+ * Copyright 2016-2021 The Reaktivity Project
+ *
+ * The Reaktivity Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package org.reaktivity.nukleus.oauth.internal.util;
+
+import static java.nio.charset.StandardCharsets.US_ASCII;
+import static org.reaktivity.nukleus.oauth.internal.util.JsonUtil.skipValue;
+import static org.reaktivity.nukleus.oauth.internal.util.JsonUtil.skipWhitespace;
+import static org.reaktivity.nukleus.oauth.internal.util.JsonUtil.stringLimit;
+import static org.reaktivity.nukleus.oauth.internal.util.JsonUtil.stringValueLimit;
+
+import org.agrona.DirectBuffer;
+
+/**
+ * Single pass reader for the JWS header parameters used by this nukleus.
+ * <p>
+ * {@link #tryWrap(DirectBuffer, int, int)} returns {@code null} for headers that need complete JWS processing,
+ * such as critical or unencoded payload parameters, or escape sequences in {@code alg} or {@code kid}.
+ */
+public final class JwtHeaderReader
+{
+    private static final byte[] ALGORITHM = "alg".getBytes(US_ASCII);
+    private static final byte[] KEY_ID = "kid".getBytes(US_ASCII);
+    private static final byte[] CRITICAL = "crit".getBytes(US_ASCII);
+    private static final byte[] BASE64_ENCODE_PAYLOAD = "b64".getBytes(US_ASCII);
+
+    private DirectBuffer buffer;
+    private int limit;
+
+    private int algorithmOffset;
+    private int algorithmLength;
+    private int keyIdOffset;
+    private int keyIdLength;
+
+    public JwtHeaderReader tryWrap(
+        DirectBuffer buffer,
+        int offset,
+        int limit)
+    {
+        this.buffer = buffer;
+        this.limit = limit;
+        this.algorithmLength = -1;
+        this.keyIdLength = -1;
+
+        int progress = skipWhitespace(buffer, offset, limit);
+        if (progress >= limit || buffer.getByte(progress) != '{')
+        {
+            return null;
+        }
+
+        progress = skipWhitespace(buffer, progress + 1, limit);
+        if (progress < limit && buffer.getByte(progress) == '}')
+        {
+            progress++;
+        }
+        else
+        {
+            progress = readMembers(progress);
+        }
+
+        return progress != -1 && skipWhitespace(buffer, progress, limit) == limit ? this : null;
+    }
+
+    public DirectBuffer buffer()
+    {
+        return buffer;
+    }
+
+    public int algorithmOffset()
+    {
+        return algorithmOffset;
+    }
+
+    public int algorithmLength()
+    {
+        return algorithmLength;
+    }
+
+    public int keyIdOffset()
+    {
+        return keyIdOffset;
+    }
+
+    public int keyIdLength()
+    {
+        return keyIdLength;
+    }
+
+    private int readMembers(
+        int offset)
+    {
+        int progress = offset;
+
+        while (progress != -1)
+        {
+            if (progress >= limit || buffer.getByte(progress) != '"')
+            {
+                progress = -1;
+                break;
+            }
+
+            final int nameOffset = progress + 1;
+            final int nameLimit = stringLimit(buffer, nameOffset, limit);
+            if (nameLimit == -1)
+            {
+                progress = -1;
+                break;
+            }
+
+            progress = skipWhitespace(buffer, nameLimit + 1, limit);
+            if (progress >= limit || buffer.getByte(progress) != ':')
+            {
+                progress = -1;
+                break;
+            }
+
+            progress = readMember(nameOffset, nameLimit, skipWhitespace(buffer, progress + 1, limit));
+            progress = progress != -1 ? skipWhitespace(buffer, progress, limit) : -1;
+            if (progress == -1 || progress >= limit)
+            {
+                progress = -1;
+                break;
+            }
+
+            final byte delimiter = buffer.getByte(progress);
+            if (delimiter == '}')
+            {
+                progress++;
+                break;
+            }
+            else if (delimiter == ',')
+            {
+                progress = skipWhitespace(buffer, progress + 1, limit);
+            }
+            else
+            {
+                progress = -1;
+            }
+        }
+
+        return progress;
+    }
+
+    private int readMember(
+        int nameOffset,
+        int nameLimit,
+        int valueOffset)
+    {
+        int progress = -1;
+
+        if (BufferUtil.equals(buffer, nameOffset, nameLimit, ALGORITHM))
+        {
+            progress = stringValueLimit(buffer, valueOffset, limit);
+            if (progress != -1)
+            {
+                algorithmOffset = valueOffset + 1;
+                algorithmLength = progress - algorithmOffset - 1;
+            }
+        }
+        else if (BufferUtil.equals(buffer, nameOffset, nameLimit, KEY_ID))
+        {
+            progress = stringValueLimit(buffer, valueOffset, limit);
+            if (progress != -1)
+            {
+                keyIdOffset = valueOffset + 1;
+                keyIdLength = progress - keyIdOffset - 1;
+            }
+        }
+        else if (!BufferUtil.equals(buffer, nameOffset, nameLimit, CRITICAL) &&
+                 !BufferUtil.equals(buffer, nameOffset, nameLimit, BASE64_ENCODE_PAYLOAD))
+        {
+            progress = skipValue(buffer, valueOffset, limit);
+        }
+
+        return progress;
+    }
+}
@@ -0,0 +1,76 @@
+/**
+ * Copyright 2016-2021 The Reaktivity Project
+ *
+ * The Reaktivity Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package org.reaktivity.nukleus.oauth.internal;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+
+import org.jose4j.jwt.JwtClaims;
+import org.junit.Test;
+
+public class OAuthAuthorizationMemoTest
+{
+    @Test
+    public void shouldMemoizeAuthorizationPerClaims() throws Exception
+    {
+        OAuthRealms realms = new OAuthRealms();
+        final long read = realms.resolve("realm one", null, null, Arrays.asList("read"));
+        final long write = realms.resolve("realm one", null, null, Arrays.asList("write"));
+
+        OAuthAuthorizationMemo memo = new OAuthAuthorizationMemo(realms, 1);
+
+        assertEquals(read, memo.applyAsLong(newVerifiedToken("realm one", "read")));
+        assertEquals(read, memo.applyAsLong(newVerifiedToken("realm one", "read")));
+        assertEquals(read | write, memo.applyAsLong(newVerifiedToken("realm one", "read write")));
+        assertEquals(0L, memo.applyAsLong(newVerifiedToken("realm two", "read write")));
+    }
+
+    @Test
+    public void shouldInvalidateAuthorizationOnResolve() throws Exception
+    {
+        OAuthRealms realms = new OAuthRealms();
+        final long read = realms.resolve("realm one", null, null, Arrays.asList("read"));
+
+        OAuthAuthorizationMemo memo = new OAuthAuthorizationMemo(realms, 16);
+        assertEquals(read, memo.applyAsLong(newVerifiedToken("realm one", "read write")));
+
+        final long write = realms.resolve("realm one", null, null, Arrays.asList("write"));
+        assertEquals(read | write, memo.applyAsLong(newVerifiedToken("realm one", "read write")));
+    }
+
+    @Test
+    public void shouldInvalidateAuthorizationOnUnresolve() throws Exception
+    {
+        OAuthRealms realms = new OAuthRealms();
+        final long read = realms.resolve("realm one", null, null, Arrays.asList("read"));
+
+        OAuthAuthorizationMemo memo = new OAuthAuthorizationMemo(realms, 16);
+        assertEquals(read, memo.applyAsLong(newVerifiedToken("realm one", "read")));
+
+        realms.unresolve(read);
+        assertEquals(0L, memo.applyAsLong(newVerifiedToken("realm one", "read")));
+    }
+
+    private OAuthVerifiedToken newVerifiedToken(
+        String kid,
+        String scope) throws Exception
+    {
+        JwtClaims claims = new JwtClaims();
+        claims.setClaim("scope", scope);
+        return OAuthVerifiedToken.of(kid, null, claims, null);
+    }
+}
@@ -24,6 +24,8 @@ import static org.reaktivity.nukleus.oauth.internal.OAuthConfiguration.CLAIM_NAM
 import static org.reaktivity.nukleus.oauth.internal.OAuthConfiguration.CLAIM_NAME_CHALLENGE_TIMEOUT_NAME;
 import static org.reaktivity.nukleus.oauth.internal.OAuthConfiguration.KEYS;
 import static org.reaktivity.nukleus.oauth.internal.OAuthConfiguration.KEYS_NAME;
+import static org.reaktivity.nukleus.oauth.internal.OAuthConfiguration.VERIFY_WORKERS;
+import static org.reaktivity.nukleus.oauth.internal.OAuthConfiguration.VERIFY_WORKERS_NAME;
 
 import java.util.Properties;
 
@@ -56,6 +58,12 @@ public class OAuthConfigurationTest
         assertEquals(CLAIM_NAME_CHALLENGE_TIMEOUT_NAME, CLAIM_NAME_CHALLENGE_TIMEOUT.name());
     }
 
+    @Test
+    public void shouldMatchVerifyWorkersConfigName()
+    {
+        assertEquals(VERIFY_WORKERS_NAME, VERIFY_WORKERS.name());
+    }
+
     @Test
     public void shouldCanonicalizeNamespaceWithTrailingSlash()
     {
@@ -0,0 +1,73 @@
+/**
+ * Copyright 2016-2021 The Reaktivity Project
+ *
+ * The Reaktivity Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package org.reaktivity.nukleus.oauth.internal;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.reaktivity.nukleus.oauth.internal.OAuthKeyDirectory.NO_INDEX;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.agrona.concurrent.UnsafeBuffer;
+import org.jose4j.jwk.JsonWebKey;
+import org.jose4j.jwk.OctJwkGenerator;
+import org.junit.Test;
+
+public class OAuthKeyDirectoryTest
+{
+    @Test
+    public void shouldLookupKeysByKidBytes() throws Exception
+    {
+        final List<OAuthKey> keys = new ArrayList<>();
+        for (int i = 0; i < 2048; i++)
+        {
+            final JsonWebKey jwk = OctJwkGenerator.generateJwk(256);
+            jwk.setKeyId("tenant-" + i);
+            jwk.setAlgorithm("HS256");
+            keys.add(OAuthKey.of(jwk));
+        }
+
+        final OAuthKeyDirectory directory = new OAuthKeyDirectory(keys);
+        final UnsafeBuffer buffer = new UnsafeBuffer(new byte[64]);
+
+        for (OAuthKey key : keys)
+        {
+            final byte[] kid = key.kid().getBytes(UTF_8);
+            buffer.putBytes(3, kid);
+
+            final int index = directory.indexOf(buffer, 3, kid.length);
+            assertSame(key, directory.key(index));
+            assertEquals(index, directory.indexOf(key));
+            assertEquals(index, directory.indexOf(key.kid()));
+        }
+
+        buffer.putBytes(0, "tenant-2048".getBytes(UTF_8));
+        assertEquals(NO_INDEX, directory.indexOf(buffer, 0, "tenant-2048".length()));
+        assertEquals(NO_INDEX, directory.indexOf(buffer, 0, "tenant-".length()));
+        assertEquals(NO_INDEX, directory.indexOf("unknown"));
+    }
+
+    @Test
+    public void shouldLookupNothingWhenEmpty()
+    {
+        final OAuthKeyDirectory directory = new OAuthKeyDirectory(new ArrayList<>());
+
+        assertEquals(NO_INDEX, directory.indexOf(new UnsafeBuffer(new byte[8]), 0, 8));
+        assertEquals(NO_INDEX, directory.indexOf(""));
+    }
+}
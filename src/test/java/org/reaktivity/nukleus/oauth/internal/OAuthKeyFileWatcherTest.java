@@ -0,0 +1,77 @@
+/**
+ * Copyright 2016-2021 The Reaktivity Project
+ *
+ * The Reaktivity Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package org.reaktivity.nukleus.oauth.internal;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.jose4j.jwk.JsonWebKey.OutputControlLevel.INCLUDE_SYMMETRIC;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+import org.jose4j.jwk.JsonWebKey;
+import org.jose4j.jwk.JsonWebKeySet;
+import org.jose4j.jwk.OctJwkGenerator;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class OAuthKeyFileWatcherTest
+{
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    @Test(timeout = 30000L)
+    public void shouldReloadKeysWhenKeyFileChanges() throws Exception
+    {
+        final Path keyFile = folder.getRoot().toPath().resolve("keys.jwk");
+        writeKeys(keyFile, "kid1");
+
+        final BlockingQueue<Map<String, OAuthKey>> changes = new ArrayBlockingQueue<>(16);
+        try (OAuthKeyFileWatcher watcher = OAuthKeyFileWatcher.watch(keyFile, changes::add))
+        {
+            assertNotNull(watcher);
+
+            Files.write(keyFile.resolveSibling("other.jwk"), "{}".getBytes(UTF_8));
+            writeKeys(keyFile, "kid2");
+
+            Map<String, OAuthKey> keysByKid = changes.poll(20, SECONDS);
+            while (keysByKid != null && !keysByKid.containsKey("kid2"))
+            {
+                keysByKid = changes.poll(20, SECONDS);
+            }
+
+            assertNotNull(keysByKid);
+            assertTrue(keysByKid.containsKey("kid2"));
+        }
+    }
+
+    private static void writeKeys(
+        Path keyFile,
+        String kid) throws Exception
+    {
+        final JsonWebKey jwk = OctJwkGenerator.generateJwk(256);
+        jwk.setKeyId(kid);
+        jwk.setAlgorithm("HS256");
+        final String keys = new JsonWebKeySet(jwk).toJson(INCLUDE_SYMMETRIC);
+        Files.write(keyFile, keys.getBytes(UTF_8));
+    }
+}
@@ -0,0 +1,214 @@
+/**
+ * Copyright 2016-2021 The Reaktivity Project
+ *
+ * The Reaktivity Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package org.reaktivity.nukleus.oauth.internal;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.jose4j.jwk.JsonWebKey.OutputControlLevel.INCLUDE_SYMMETRIC;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.agrona.concurrent.UnsafeBuffer;
+import org.jose4j.jwk.JsonWebKey;
+import org.jose4j.jwk.JsonWebKeySet;
+import org.jose4j.jwk.OctJwkGenerator;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.sun.net.httpserver.HttpServer;
+
+public class OAuthKeySetFetcherTest
+{
+    private final AtomicInteger requests = new AtomicInteger();
+    private final CountDownLatch slowRequested = new CountDownLatch(1);
+    private final CountDownLatch slowResponded = new CountDownLatch(1);
+    private final BlockingQueue<Map<String, OAuthKey>> changes = new ArrayBlockingQueue<>(16);
+
+    private HttpServer server;
+    private volatile String keys;
+    private volatile String etag;
+
+    @Before
+    public void startServer() throws Exception
+    {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/jwks", exchange ->
+        {
+            requests.incrementAndGet();
+            final String etag = this.etag;
+            if (etag.equals(exchange.getRequestHeaders().getFirst("If-None-Match")))
+            {
+                exchange.sendResponseHeaders(304, -1);
+            }
+            else
+            {
+                final byte[] body = keys.getBytes(UTF_8);
+                exchange.getResponseHeaders().add("ETag", etag);
+                exchange.sendResponseHeaders(200, body.length);
+                exchange.getResponseBody().write(body);
+            }
+            exchange.close();
+        });
+        server.createContext("/slow/jwks", exchange ->
+        {
+            requests.incrementAndGet();
+            slowRequested.countDown();
+            try
+            {
+                slowResponded.await();
+            }
+            catch (InterruptedException ex)
+            {
+                Thread.currentThread().interrupt();
+            }
+            final byte[] body = keys.getBytes(UTF_8);
+            exchange.sendResponseHeaders(200, body.length);
+            exchange.getResponseBody().write(body);
+            exchange.close();
+        });
+        server.start();
+    }
+
+    @After
+    public void stopServer()
+    {
+        server.stop(0);
+    }
+
+    @Test(timeout = 30000L)
+    public void shouldFetchKeysAndRefetchOnceForUnknownKid() throws Exception
+    {
+        setKeys("kid1", "\"v1\"");
+
+        final URL url = new URL("http", "localhost", server.getAddress().getPort(), "/jwks");
+        try (OAuthKeySetFetcher fetcher = new OAuthKeySetFetcher(url, 0L, 60000L, () -> 0L, changes::add))
+        {
+            fetcher.start();
+
+            final Map<String, OAuthKey> initial = changes.poll(20, SECONDS);
+            assertNotNull(initial);
+            assertTrue(initial.containsKey("kid1"));
+            assertEquals(1, requests.get());
+
+            setKeys("kid2", "\"v2\"");
+            final UnsafeBuffer kid = new UnsafeBuffer("kid2".getBytes(UTF_8));
+            fetcher.onUnknownKey(kid, 0, kid.capacity());
+            fetcher.onUnknownKey(kid, 0, kid.capacity());
+
+            final Map<String, OAuthKey> refetched = changes.poll(20, SECONDS);
+            assertNotNull(refetched);
+            assertTrue(refetched.containsKey("kid2"));
+
+            fetcher.onUnknownKey(kid, 0, kid.capacity());
+            assertNull(changes.poll(200, MILLISECONDS));
+            assertEquals(2, requests.get());
+        }
+    }
+
+    @Test(timeout = 30000L)
+    public void shouldNotReloadKeysWhenNotModified() throws Exception
+    {
+        setKeys("kid1", "\"v1\"");
+
+        final URL url = new URL("http", "localhost", server.getAddress().getPort(), "/jwks");
+        try (OAuthKeySetFetcher fetcher = new OAuthKeySetFetcher(url, 50L, 60000L, () -> 0L, changes::add))
+        {
+            fetcher.start();
+            assertNotNull(changes.poll(20, SECONDS));
+
+            while (requests.get() < 3)
+            {
+                Thread.sleep(10L);
+            }
+
+            assertNull(changes.poll());
+        }
+    }
+
+    @Test(timeout = 30000L)
+    public void shouldStartWithoutWaitingForFetch() throws Exception
+    {
+        setKeys("kid1", "\"v1\"");
+
+        final URL url = new URL("http", "localhost", server.getAddress().getPort(), "/slow/jwks");
+        try (OAuthKeySetFetcher fetcher = new OAuthKeySetFetcher(url, 0L, 60000L, () -> 0L, changes::add))
+        {
+            fetcher.start();
+            assertNull(changes.poll());
+
+            slowRequested.await();
+            slowResponded.countDown();
+
+            final Map<String, OAuthKey> initial = changes.poll(20, SECONDS);
+            assertNotNull(initial);
+            assertTrue(initial.containsKey("kid1"));
+        }
+    }
+
+    @Test(timeout = 30000L)
+    public void shouldAwaitInFlightFetchOnClose() throws Exception
+    {
+        setKeys("kid1", "\"v1\"");
+
+        final URL url = new URL("http", "localhost", server.getAddress().getPort(), "/slow/jwks");
+        final OAuthKeySetFetcher fetcher = new OAuthKeySetFetcher(url, 0L, 60000L, () -> 0L, changes::add);
+        fetcher.start();
+        slowRequested.await();
+
+        final Thread responder = new Thread(() ->
+        {
+            try
+            {
+                Thread.sleep(200L);
+            }
+            catch (InterruptedException ex)
+            {
+                Thread.currentThread().interrupt();
+            }
+            slowResponded.countDown();
+        });
+        responder.start();
+
+        fetcher.close();
+
+        assertNotNull(changes.poll());
+        assertEquals(1, requests.get());
+        responder.join();
+    }
+
+    private void setKeys(
+        String kid,
+        String etag) throws Exception
+    {
+        final JsonWebKey jwk = OctJwkGenerator.generateJwk(256);
+        jwk.setKeyId(kid);
+        jwk.setAlgorithm("HS256");
+        this.keys = new JsonWebKeySet(jwk).toJson(INCLUDE_SYMMETRIC);
+        this.etag = etag;
+    }
+}
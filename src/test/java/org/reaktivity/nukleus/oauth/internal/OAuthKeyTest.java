@@ -0,0 +1,115 @@
+/**
+ * Copyright 2016-2021 The Reaktivity Project
+ *
+ * The Reaktivity Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package org.reaktivity.nukleus.oauth.internal;
+
+import static java.nio.charset.StandardCharsets.US_ASCII;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Base64;
+
+import org.jose4j.jwk.EcJwkGenerator;
+import org.jose4j.jwk.JsonWebKey;
+import org.jose4j.jwk.OctJwkGenerator;
+import org.jose4j.jwk.PublicJsonWebKey;
+import org.jose4j.jwk.RsaJwkGenerator;
+import org.jose4j.jws.JsonWebSignature;
+import org.jose4j.keys.EllipticCurves;
+import org.junit.Test;
+
+public class OAuthKeyTest
+{
+    @Test
+    public void shouldVerifyRsaSignature() throws Exception
+    {
+        final PublicJsonWebKey jwk = RsaJwkGenerator.generateJwk(2048);
+        jwk.setKeyId("RS256");
+        jwk.setAlgorithm("RS256");
+
+        assertVerified(jwk, PublicJsonWebKey.Factory.newPublicJwk(jwk.getPublicKey()));
+    }
+
+    @Test
+    public void shouldVerifyEcdsaSignature() throws Exception
+    {
+        final PublicJsonWebKey jwk = EcJwkGenerator.generateJwk(EllipticCurves.P256);
+        jwk.setKeyId("ES256");
+        jwk.setAlgorithm("ES256");
+
+        assertVerified(jwk, PublicJsonWebKey.Factory.newPublicJwk(jwk.getPublicKey()));
+    }
+
+    @Test
+    public void shouldVerifyMacSignature() throws Exception
+    {
+        final JsonWebKey jwk = OctJwkGenerator.generateJwk(256);
+        jwk.setKeyId("HS256");
+        jwk.setAlgorithm("HS256");
+
+        assertVerified(jwk, jwk);
+    }
+
+    @Test
+    public void shouldNotVerifyWithUndersizedMacKey() throws Exception
+    {
+        final JsonWebKey jwk = OctJwkGenerator.generateJwk(128);
+        jwk.setAlgorithm("HS256");
+
+        final OAuthKey key = OAuthKey.of(jwk);
+        final byte[] input = "input".getBytes(US_ASCII);
+
+        assertTrue(key.canVerify());
+        assertFalse(key.verify(input, input.length, new byte[32], 32));
+    }
+
+    @Test
+    public void shouldNotVerifyProbabilisticRsaSignature() throws Exception
+    {
+        final PublicJsonWebKey jwk = RsaJwkGenerator.generateJwk(2048);
+        jwk.setAlgorithm("PS256");
+
+        assertFalse(OAuthKey.of(jwk).canVerify());
+    }
+
+    private static void assertVerified(
+        JsonWebKey signingKey,
+        JsonWebKey verifyingKey) throws Exception
+    {
+        verifyingKey.setKeyId(signingKey.getKeyId());
+        verifyingKey.setAlgorithm(signingKey.getAlgorithm());
+
+        final JsonWebSignature signature = new JsonWebSignature();
+        signature.setPayload("{\"sub\":\"testuser\"}");
+        signature.setKeyIdHeaderValue(signingKey.getKeyId());
+        signature.setAlgorithmHeaderValue(signingKey.getAlgorithm());
+        signature.setKey(signingKey instanceof PublicJsonWebKey ? ((PublicJsonWebKey) signingKey).getPrivateKey()
+                                                                 : signingKey.getKey());
+        final String[] parts = signature.getCompactSerialization().split("\\.");
+
+        final byte[] signingInput = (parts[0] + "." + parts[1]).getBytes(US_ASCII);
+        final byte[] signatureBytes = Base64.getUrlDecoder().decode(parts[2]);
+        final OAuthKey key = OAuthKey.of(verifyingKey);
+
+        assertTrue(key.canVerify());
+        assertTrue(key.verify(signingInput, signingInput.length, signatureBytes, signatureBytes.length));
+
+        signingInput[signingInput.length - 1] ^= 1;
+        assertFalse(key.verify(signingInput, signingInput.length, signatureBytes, signatureBytes.length));
+
+        signingInput[signingInput.length - 1] ^= 1;
+        assertFalse(key.verify(signingInput, signingInput.length, signatureBytes, signatureBytes.length - 1));
+    }
+}
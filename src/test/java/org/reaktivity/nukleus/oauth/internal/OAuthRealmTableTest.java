@@ -0,0 +1,120 @@
+/**
+ * Copyright 2016-2021 The Reaktivity Project
+ *
+ * The Reaktivity Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package org.reaktivity.nukleus.oauth.internal;
+
+import static java.util.Collections.emptyList;
+import static java.util.Collections.singletonList;
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+import org.jose4j.jwk.JsonWebKey;
+import org.jose4j.jwk.OctJwkGenerator;
+import org.jose4j.jwt.JwtClaims;
+import org.junit.Test;
+
+public class OAuthRealmTableTest
+{
+    private static final long SPECIFIC = 0x0001_000000000000L;
+    private static final long WILDCARD = 0x0002_000000000000L;
+
+    @Test
+    public void shouldLookupSpecificClaimsResolvedBeforeWildcard() throws Exception
+    {
+        OAuthRealmTable table = new OAuthRealmTable(0L, new OAuthKeyDirectory(emptyList()));
+        table.add("realm one", SPECIFIC, 0, "issuer", "audience", OAuthScopeDictionary.EMPTY);
+        table.add("realm one", WILDCARD, 1, null, null, OAuthScopeDictionary.EMPTY);
+
+        assertEquals(SPECIFIC, table.lookup(newVerifiedToken("realm one", "issuer", "audience")));
+        assertEquals(WILDCARD, table.lookup(newVerifiedToken("realm one", "issuer", "other")));
+        assertEquals(WILDCARD, table.lookup(newVerifiedToken("realm one", "other", "audience")));
+        assertEquals(WILDCARD, table.lookup(newVerifiedToken("realm one", null)));
+    }
+
+    @Test
+    public void shouldLookupWildcardClaimsResolvedBeforeSpecific() throws Exception
+    {
+        OAuthRealmTable table = new OAuthRealmTable(0L, new OAuthKeyDirectory(emptyList()));
+        table.add("realm one", WILDCARD, 0, null, null, OAuthScopeDictionary.EMPTY);
+        table.add("realm one", SPECIFIC, 1, "issuer", "audience", OAuthScopeDictionary.EMPTY);
+
+        assertEquals(WILDCARD, table.lookup(newVerifiedToken("realm one", "issuer", "audience")));
+        assertEquals(WILDCARD, table.lookup(newVerifiedToken("realm one", "other", "audience")));
+    }
+
+    @Test
+    public void shouldLookupEarliestMatchingAudience() throws Exception
+    {
+        OAuthRealmTable table = new OAuthRealmTable(0L, new OAuthKeyDirectory(emptyList()));
+        table.add("realm one", SPECIFIC, 0, "issuer", "audience2", OAuthScopeDictionary.EMPTY);
+        table.add("realm one", WILDCARD, 1, "issuer", null, OAuthScopeDictionary.EMPTY);
+
+        assertEquals(SPECIFIC, table.lookup(newVerifiedToken("realm one", "issuer", "audience1", "audience2")));
+        assertEquals(WILDCARD, table.lookup(newVerifiedToken("realm one", "issuer", "audience1")));
+        assertEquals(0L, table.lookup(newVerifiedToken("realm one", "other", "audience2")));
+    }
+
+    @Test
+    public void shouldLookupRealmWithScopes() throws Exception
+    {
+        final Map<Set<String>, Long> scopeBitsByScopeNames = new LinkedHashMap<>();
+        scopeBitsByScopeNames.put(new HashSet<>(Arrays.asList("read")), 0x01L);
+
+        OAuthRealmTable table = new OAuthRealmTable(0L, new OAuthKeyDirectory(emptyList()));
+        table.add("realm one", SPECIFIC, 0, null, null, new OAuthScopeDictionary(scopeBitsByScopeNames));
+
+        JwtClaims claims = new JwtClaims();
+        claims.setClaim("scope", "read write");
+
+        assertEquals(SPECIFIC | 0x01L, table.lookup(OAuthVerifiedToken.of("realm one", null, claims, null)));
+    }
+
+    @Test
+    public void shouldLookupRealmByKey() throws Exception
+    {
+        final JsonWebKey jwk = OctJwkGenerator.generateJwk(256);
+        jwk.setKeyId("realm one");
+        jwk.setAlgorithm("HS256");
+        final OAuthKey key = OAuthKey.of(jwk);
+
+        OAuthRealmTable table = new OAuthRealmTable(0L, new OAuthKeyDirectory(singletonList(key)));
+        table.add("realm one", SPECIFIC, 0, null, null, OAuthScopeDictionary.EMPTY);
+
+        assertEquals(SPECIFIC, table.lookup(OAuthVerifiedToken.of("realm one", key, new JwtClaims(), null)));
+        assertEquals(0L, table.lookup(OAuthVerifiedToken.of("realm two", null, new JwtClaims(), null)));
+    }
+
+    private OAuthVerifiedToken newVerifiedToken(
+        String kid,
+        String issuer,
+        String... audiences) throws Exception
+    {
+        JwtClaims claims = new JwtClaims();
+        if (issuer != null)
+        {
+            claims.setIssuer(issuer);
+        }
+        if (audiences.length > 0)
+        {
+            claims.setAudience(Arrays.asList(audiences));
+        }
+        return OAuthVerifiedToken.of(kid, null, claims, null);
+    }
+}
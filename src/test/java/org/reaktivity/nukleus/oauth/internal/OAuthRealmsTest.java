@@ -15,16 +15,21 @@
  */
 package org.reaktivity.nukleus.oauth.internal;
 
+import static java.util.Collections.singletonMap;
+import static org.jose4j.jwk.JsonWebKey.OutputControlLevel.INCLUDE_SYMMETRIC;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
-import static org.reaktivity.specification.nukleus.oauth.internal.OAuthJwtKeys.RFC7515_ES256;
-import static org.reaktivity.specification.nukleus.oauth.internal.OAuthJwtKeys.RFC7515_RS256;
+import static org.reaktivity.nukleus.oauth.internal.OAuthRealms.MAX_REALMS;
 
-import java.security.KeyPair;
 import java.util.Arrays;
+import java.util.Collections;
 
-import org.jose4j.jws.JsonWebSignature;
+import org.jose4j.jwk.JsonWebKey;
+import org.jose4j.jwk.OctJwkGenerator;
 import org.jose4j.jwt.JwtClaims;
 import org.junit.Test;
 
@@ -34,23 +39,200 @@ public class OAuthRealmsTest
     public void shouldAddUpToMaximumRealms() throws Exception
     {
         OAuthRealms realms = new OAuthRealms();
-        for (int i = 0; i < Short.SIZE; i++)
+        for (int i = 0; i < MAX_REALMS; i++)
         {
-            realms.resolve("realm" + i);
+            assertNotEquals(0L, realms.resolve("realm" + i));
         }
     }
 
     @Test
     public void shouldNotAddTooManyRealms() throws Exception
+    {
+        OAuthRealms realms = new OAuthRealms();
+        for (int i = 0; i < MAX_REALMS; i++)
+        {
+            realms.resolve("realm" + i);
+        }
+        assertEquals(0L, realms.resolve("one realm too many"));
+    }
+
+    @Test
+    public void shouldResolveSingleBitRealmsFirst() throws Exception
+    {
+        OAuthRealms realms = new OAuthRealms();
+        for (int i = 0; i < Short.SIZE; i++)
+        {
+            assertEquals(1L << (48 + i), realms.resolve("realm" + i));
+        }
+        assertEquals(0x0000_00FF_00000000L, realms.resolve("realm" + Short.SIZE));
+        assertEquals(0x0000_017F_00000000L, realms.resolve("realm" + (Short.SIZE + 1)));
+        assertEquals(0x0000_00FF_00000001L, realms.resolve("realm" + Short.SIZE, null, null, Arrays.asList("read")));
+    }
+
+    @Test
+    public void shouldResolveScopeNamesSharedAcrossRealmInfos() throws Exception
+    {
+        OAuthRealms realms = new OAuthRealms();
+        assertEquals(0x0001_000000000007L, realms.resolve("RS256", "issuer1", null, Arrays.asList("scope1", "scope2", "scope3")));
+        assertEquals(0x0002_000000000008L, realms.resolve("RS256", "issuer2", null, Arrays.asList("scope1")));
+        assertEquals(0x0001_000000000002L, realms.resolve("RS256", "issuer1", null, Arrays.asList("scope2")));
+    }
+
+    @Test
+    public void shouldResolveScopeSetsBeyondSingleBitRealms() throws Exception
     {
         OAuthRealms realms = new OAuthRealms();
         for (int i = 0; i < Short.SIZE; i++)
         {
             realms.resolve("realm" + i);
         }
+
+        assertEquals(0x0000_00FF_00000001L, realms.resolve("realm one", null, null, Arrays.asList("read", "write")));
+        assertEquals(0x0000_00FF_00000002L, realms.resolve("realm one", null, null, Arrays.asList("read")));
+        assertEquals(0x0000_00FF_00000001L, realms.resolve("realm one", null, null, Arrays.asList("write", "read")));
+
+        for (int i = 2; i < Integer.SIZE; i++)
+        {
+            assertEquals(0x0000_00FF_00000000L | 1L << i,
+                realms.resolve("realm one", null, null, Arrays.asList("read", "scope" + i)));
+        }
+        assertEquals(0L, realms.resolve("realm one", null, null, Arrays.asList("one scope set too many")));
+    }
+
+    @Test
+    public void shouldResolveUpTo47ScopeNamesInSingleBitRealm() throws Exception
+    {
+        OAuthRealms realms = new OAuthRealms();
+        long authorization = 0L;
+        for (int i = 0; i < 47; i++)
+        {
+            authorization = realms.resolve("realm one", null, null, Arrays.asList("scope" + i));
+            assertEquals(0x0001_000000000000L | 1L << i, authorization);
+        }
+        assertEquals(0L, realms.resolve("realm one", null, null, Arrays.asList("one scope too many")));
+
+        assertEquals(0x0001_400000000000L, authorization);
+        assertTrue(realms.unresolve(authorization));
+    }
+
+    @Test
+    public void shouldNotResolveMoreRealmsAfterWideScopeNames() throws Exception
+    {
+        OAuthRealms realms = new OAuthRealms();
+        for (int i = 0; i < Integer.SIZE + 1; i++)
+        {
+            realms.resolve("realm0", null, null, Arrays.asList("scope" + i));
+        }
+        for (int i = 1; i < Short.SIZE; i++)
+        {
+            assertNotEquals(0L, realms.resolve("realm" + i));
+        }
+        assertEquals(0L, realms.resolve("realm" + Short.SIZE));
+    }
+
+    @Test
+    public void shouldLimitScopeNamesAfterMoreRealms() throws Exception
+    {
+        OAuthRealms realms = new OAuthRealms();
+        for (int i = 0; i <= Short.SIZE; i++)
+        {
+            realms.resolve("realm" + i);
+        }
+        for (int i = 0; i < Integer.SIZE - 1; i++)
+        {
+            assertEquals(0x0001_000000000000L | 1L << i, realms.resolve("realm0", null, null, Arrays.asList("scope" + i)));
+        }
+        assertEquals(0L, realms.resolve("realm0", null, null, Arrays.asList("one scope too many")));
+    }
+
+    @Test
+    public void shouldReuseReleasedRealmAfterQuarantine() throws Exception
+    {
+        final long[] now = { 0L };
+        OAuthRealms realms = new OAuthRealms(Collections.emptyMap(), () -> now[0], 1000L);
+        long released = 0L;
+        for (int i = 0; i < MAX_REALMS; i++)
+        {
+            final long authorization = realms.resolve("realm" + i);
+            released = i == 42 ? authorization : released;
+        }
+
+        assertTrue(realms.unresolve(released));
+        assertEquals(0L, realms.resolve("new realm"));
+
+        now[0] += 1000L;
+        assertEquals(released, realms.resolve("new realm"));
         assertEquals(0L, realms.resolve("one realm too many"));
     }
 
+    @Test
+    public void shouldNotCoverOtherRealms() throws Exception
+    {
+        OAuthRealms realms = new OAuthRealms();
+        final long[] authorizations = new long[256];
+        for (int i = 0; i < authorizations.length; i++)
+        {
+            authorizations[i] = realms.resolve("realm" + i);
+        }
+
+        for (int i = 0; i < authorizations.length; i++)
+        {
+            for (int j = 0; j < authorizations.length; j++)
+            {
+                assertEquals(i == j, (authorizations[i] & authorizations[j]) == authorizations[j]);
+            }
+        }
+    }
+
+    @Test
+    public void shouldPublishRealmTableOnChange() throws Exception
+    {
+        OAuthRealms realms = new OAuthRealms();
+        final OAuthVerifiedToken token = newVerifiedToken("realm one", new JwtClaims().toJson());
+
+        final OAuthRealmTable initial = realms.table();
+        assertSame(initial, realms.table());
+
+        realms.resolve("realm one");
+
+        final OAuthRealmTable resolved = realms.table();
+        assertNotSame(initial, resolved);
+        assertNotEquals(initial.generation(), resolved.generation());
+        assertEquals(0L, initial.lookup(token));
+        assertEquals(0x0001_000000000000L, resolved.lookup(token));
+
+        realms.unresolve(0x0001_000000000000L);
+
+        assertNotSame(resolved, realms.table());
+        assertEquals(0x0001_000000000000L, resolved.lookup(token));
+        assertEquals(0L, realms.table().lookup(token));
+    }
+
+    @Test
+    public void shouldResolveScopeNames() throws Exception
+    {
+        OAuthRealms realms = new OAuthRealms();
+        final long readWrite = realms.resolve("realm one", null, null, Arrays.asList("read", "write"));
+        final long read = realms.resolve("realm one", null, null, Arrays.asList("read"));
+        final long admin = realms.resolve("realm one", null, null, Arrays.asList("admin"));
+
+        assertEquals(0x0001_000000000003L, readWrite);
+        assertEquals(0x0001_000000000001L, read);
+        assertEquals(0x0001_000000000004L, admin);
+        assertEquals(readWrite, realms.resolve("realm one", null, null, Arrays.asList("write", "read", "write")));
+
+        JwtClaims claims = new JwtClaims();
+        claims.setClaim("scope", "read write");
+        final long authorization = lookup(realms, newVerifiedToken("realm one", claims.toJson()));
+
+        assertEquals(readWrite, authorization & readWrite);
+        assertEquals(read, authorization & read);
+        assertNotEquals(admin, authorization & admin);
+
+        claims.setClaim("scope", "read");
+        assertEquals(read, lookup(realms, newVerifiedToken("realm one", claims.toJson())));
+    }
+
     @Test
     public void shouldResolveKnownRealms() throws Exception
     {
@@ -61,11 +243,59 @@ public class OAuthRealmsTest
         JwtClaims claims = new JwtClaims();
         String payload = claims.toJson();
 
-        final JsonWebSignature signatureOne = newSignedSignature("realm one", "RS256", payload, RFC7515_RS256);
-        final JsonWebSignature signatureTwo = newSignedSignature("realm two", "ES256", payload, RFC7515_ES256);
+        final OAuthVerifiedToken tokenOne = newVerifiedToken("realm one", payload);
+        final OAuthVerifiedToken tokenTwo = newVerifiedToken("realm two", payload);
+
+        assertEquals(0x0001_000000000000L, lookup(realms, tokenOne));
+        assertEquals(0x0002_000000000000L, lookup(realms, tokenTwo));
+    }
+
+    @Test
+    public void shouldResolveKnownRealmsByKey() throws Exception
+    {
+        final JsonWebKey jwk = OctJwkGenerator.generateJwk(256);
+        jwk.setKeyId("realm one");
+        jwk.setAlgorithm("HS256");
+        final OAuthKey key = OAuthKey.of(jwk);
+
+        OAuthRealms realms = new OAuthRealms(singletonMap("realm one", key));
+        realms.resolve("realm zero");
+        realms.resolve("realm one");
+
+        final OAuthVerifiedToken token = OAuthVerifiedToken.of("realm one", key, new JwtClaims(), null);
 
-        assertEquals(0x0001_000000000000L, realms.lookup(signatureOne));
-        assertEquals(0x0002_000000000000L, realms.lookup(signatureTwo));
+        assertEquals(0x0002_000000000000L, lookup(realms, token));
+        assertTrue(realms.unresolve(0x0002_000000000000L));
+        assertEquals(0L, lookup(realms, token));
+    }
+
+    @Test
+    public void shouldRetainUnchangedKeysOnUpdate() throws Exception
+    {
+        final JsonWebKey jwk = OctJwkGenerator.generateJwk(256);
+        jwk.setKeyId("realm one");
+        jwk.setAlgorithm("HS256");
+        final OAuthKey key = OAuthKey.of(jwk);
+
+        OAuthRealms realms = new OAuthRealms(singletonMap("realm one", key));
+        realms.resolve("realm one");
+
+        final OAuthVerifiedToken token = OAuthVerifiedToken.of("realm one", key, new JwtClaims(), null);
+
+        realms.updateKeys(singletonMap("realm one", OAuthKey.of(JsonWebKey.Factory.newJwk(jwk.toParams(INCLUDE_SYMMETRIC)))));
+
+        assertFalse(key.isRevoked());
+        assertEquals(0x0001_000000000000L, lookup(realms, token));
+
+        final JsonWebKey newJwk = OctJwkGenerator.generateJwk(256);
+        newJwk.setKeyId("realm one");
+        newJwk.setAlgorithm("HS256");
+        final OAuthKey newKey = OAuthKey.of(newJwk);
+        realms.updateKeys(singletonMap("realm one", newKey));
+
+        assertTrue(key.isRevoked());
+        assertEquals(0L, lookup(realms, token));
+        assertEquals(0x0001_000000000000L, lookup(realms, OAuthVerifiedToken.of("realm one", newKey, new JwtClaims(), null)));
     }
 
     @Test
@@ -85,11 +315,11 @@ public class OAuthRealmsTest
         claims2.setClaim("aud", "testAudience2");
         String payload2 = claims1.toJson();
 
-        final JsonWebSignature signatureOne = newSignedSignature("realm one", "RS256", payload1, RFC7515_RS256);
-        final JsonWebSignature signatureTwo = newSignedSignature("realm two", "ES256", payload2, RFC7515_ES256);
+        final OAuthVerifiedToken tokenOne = newVerifiedToken("realm one", payload1);
+        final OAuthVerifiedToken tokenTwo = newVerifiedToken("realm two", payload2);
 
-        assertEquals(0x0001_000000000000L, realms.lookup(signatureOne));
-        assertEquals(0x0002_000000000000L, realms.lookup(signatureTwo));
+        assertEquals(0x0001_000000000000L, lookup(realms, tokenOne));
+        assertEquals(0x0002_000000000000L, lookup(realms, tokenTwo));
     }
 
     @Test
@@ -102,11 +332,11 @@ public class OAuthRealmsTest
         JwtClaims claims = new JwtClaims();
         String emptyPayload = claims.toJson();
 
-        final JsonWebSignature signatureOne = newSignedSignature("realm one", "RS256", emptyPayload, RFC7515_RS256);
-        final JsonWebSignature signatureTwo = newSignedSignature("realm two", "ES256", emptyPayload, RFC7515_ES256);
+        final OAuthVerifiedToken tokenOne = newVerifiedToken("realm one", emptyPayload);
+        final OAuthVerifiedToken tokenTwo = newVerifiedToken("realm two", emptyPayload);
 
-        assertEquals(0x0000_000000000000L, realms.lookup(signatureOne));
-        assertEquals(0x0000_000000000000L, realms.lookup(signatureTwo));
+        assertEquals(0x0000_000000000000L, lookup(realms, tokenOne));
+        assertEquals(0x0000_000000000000L, lookup(realms, tokenTwo));
     }
 
     @Test
@@ -126,11 +356,11 @@ public class OAuthRealmsTest
         claims2.setClaim("aud", "testAudience2");
         String payload2 = claims2.toJson();
 
-        final JsonWebSignature signatureOne = newSignedSignature("realm one", "RS256", payload1, RFC7515_RS256);
-        final JsonWebSignature signatureTwo = newSignedSignature("realm two", "ES256", payload2, RFC7515_ES256);
+        final OAuthVerifiedToken tokenOne = newVerifiedToken("realm one", payload1);
+        final OAuthVerifiedToken tokenTwo = newVerifiedToken("realm two", payload2);
 
-        assertEquals(0x0001_000000000000L, realms.lookup(signatureOne));
-        assertEquals(0x0002_000000000000L, realms.lookup(signatureTwo));
+        assertEquals(0x0001_000000000000L, lookup(realms, tokenOne));
+        assertEquals(0x0002_000000000000L, lookup(realms, tokenTwo));
     }
 
     @Test
@@ -143,9 +373,9 @@ public class OAuthRealmsTest
         claims.setClaim("iss", "test issuer1");
         claims.setClaim("aud", Arrays.asList("testAudience1", "testAudience2"));
 
-        final JsonWebSignature signature = newSignedSignature("realm one", "RS256", claims.toJson(), RFC7515_RS256);
+        final OAuthVerifiedToken token = newVerifiedToken("realm one", claims.toJson());
 
-        assertEquals(0x0001_000000000000L, realms.lookup(signature));
+        assertEquals(0x0001_000000000000L, lookup(realms, token));
     }
 
     @Test
@@ -165,11 +395,34 @@ public class OAuthRealmsTest
         claims2.setClaim("aud", "testAudience2");
         String payload2 = claims2.toJson();
 
-        final JsonWebSignature signatureOne = newSignedSignature("realm one", "RS256", payload1, RFC7515_RS256);
-        final JsonWebSignature signatureTwo = newSignedSignature("realm one", "RS256", payload2, RFC7515_RS256);
+        final OAuthVerifiedToken tokenOne = newVerifiedToken("realm one", payload1);
+        final OAuthVerifiedToken tokenTwo = newVerifiedToken("realm one", payload2);
+
+        assertEquals(0x0001_000000000000L, lookup(realms, tokenOne));
+        assertEquals(0x0002_000000000000L, lookup(realms, tokenTwo));
+    }
+
+    @Test
+    public void shouldResolveFirstMatchingRealmWithWildcardClaims() throws Exception
+    {
+        OAuthRealms realms = new OAuthRealms();
+        realms.resolve("realm one", "test issuer1", "testAudience2", null);
+        realms.resolve("realm one", null, null, null);
+        realms.resolve("realm one", "test issuer1", "testAudience1", null);
 
-        assertEquals(0x0001_000000000000L, realms.lookup(signatureOne));
-        assertEquals(0x0002_000000000000L, realms.lookup(signatureTwo));
+        JwtClaims claims1 = new JwtClaims();
+        claims1.setClaim("iss", "test issuer1");
+        claims1.setClaim("aud", Arrays.asList("testAudience1", "testAudience2"));
+
+        JwtClaims claims2 = new JwtClaims();
+        claims2.setClaim("iss", "test issuer2");
+        claims2.setClaim("aud", "testAudience1");
+
+        assertEquals(0x0001_000000000000L, lookup(realms, newVerifiedToken("realm one", claims1.toJson())));
+        assertEquals(0x0002_000000000000L, lookup(realms, newVerifiedToken("realm one", claims2.toJson())));
+
+        assertTrue(realms.unresolve(0x0001_000000000000L));
+        assertEquals(0x0002_000000000000L, lookup(realms, newVerifiedToken("realm one", claims1.toJson())));
     }
 
     @Test
@@ -189,11 +442,59 @@ public class OAuthRealmsTest
         claims2.setClaim("aud", "testAudience2");
         String payload2 = claims2.toJson();
 
-        final JsonWebSignature signatureOne = newSignedSignature("realm one", "RS256", payload1, RFC7515_RS256);
-        final JsonWebSignature signatureTwo = newSignedSignature("realm one", "RS256", payload2, RFC7515_RS256);
+        final OAuthVerifiedToken tokenOne = newVerifiedToken("realm one", payload1);
+        final OAuthVerifiedToken tokenTwo = newVerifiedToken("realm one", payload2);
+
+        assertTrue(realms.unresolve(lookup(realms, tokenOne)));
+        assertTrue(realms.unresolve(lookup(realms, tokenTwo)));
+    }
+
+    @Test
+    public void shouldUnresolveOneOfSeveralRealmInfosThenResolveAgain() throws Exception
+    {
+        OAuthRealms realms = new OAuthRealms();
+        final long one = realms.resolve("realm one", "test issuer1", "testAudience1", null);
+        final long two = realms.resolve("realm one", "test issuer2", "testAudience2", Arrays.asList("read"));
+        final long wildcard = realms.resolve("realm one", null, null, null);
+        final long other = realms.resolve("realm two");
+
+        assertEquals(0x0001_000000000000L, one);
+        assertEquals(0x0002_000000000001L, two);
+        assertEquals(0x0004_000000000000L, wildcard);
+        assertEquals(0x0008_000000000000L, other);
+
+        JwtClaims claims1 = new JwtClaims();
+        claims1.setClaim("iss", "test issuer1");
+        claims1.setClaim("aud", "testAudience1");
+
+        JwtClaims claims2 = new JwtClaims();
+        claims2.setClaim("iss", "test issuer2");
+        claims2.setClaim("aud", "testAudience2");
+        claims2.setClaim("scope", "read");
+
+        assertEquals(two, lookup(realms, newVerifiedToken("realm one", claims2.toJson())));
 
-        assertTrue(realms.unresolve(realms.lookup(signatureOne)));
-        assertTrue(realms.unresolve(realms.lookup(signatureTwo)));
+        assertTrue(realms.unresolve(two));
+        assertFalse(realms.unresolve(two));
+        assertFalse(realms.unresolve(0x0002_000000000000L));
+
+        assertEquals(one, lookup(realms, newVerifiedToken("realm one", claims1.toJson())));
+        assertEquals(wildcard, lookup(realms, newVerifiedToken("realm one", claims2.toJson())));
+        assertEquals(other, lookup(realms, newVerifiedToken("realm two", new JwtClaims().toJson())));
+
+        final long twoAgain = realms.resolve("realm one", "test issuer2", "testAudience2", Arrays.asList("read"));
+        assertEquals(0x0010_000000000002L, twoAgain);
+        assertEquals(wildcard, lookup(realms, newVerifiedToken("realm one", claims2.toJson())));
+
+        assertTrue(realms.unresolve(wildcard));
+        assertEquals(twoAgain, lookup(realms, newVerifiedToken("realm one", claims2.toJson())));
+
+        assertTrue(realms.unresolve(one));
+        assertTrue(realms.unresolve(twoAgain));
+        assertEquals(0L, lookup(realms, newVerifiedToken("realm one", claims1.toJson())));
+
+        assertEquals(0x0020_000000000000L, realms.resolve("realm one"));
+        assertEquals(other, lookup(realms, newVerifiedToken("realm two", new JwtClaims().toJson())));
     }
 
     @Test
@@ -207,18 +508,18 @@ public class OAuthRealmsTest
         claims.setClaim("aud", "testAudience");
         String payload = claims.toJson();
 
-        final JsonWebSignature signatureOne = newSignedSignature("realm one", "RS256", payload, RFC7515_RS256);
+        final OAuthVerifiedToken tokenOne = newVerifiedToken("realm one", payload);
 
-        assertTrue(realms.unresolve(realms.lookup(signatureOne)));
-        assertFalse(realms.unresolve(realms.lookup(signatureOne)));
+        assertTrue(realms.unresolve(lookup(realms, tokenOne)));
+        assertFalse(realms.unresolve(lookup(realms, tokenOne)));
     }
 
     @Test
     public void shouldNotResolveUnknownRealm() throws Exception
     {
         OAuthRealms realms = new OAuthRealms();
-        final JsonWebSignature signature = new JsonWebSignature();
-        assertEquals(0L, realms.lookup(signature));
+        final OAuthVerifiedToken token = newVerifiedToken(null, new JwtClaims().toJson());
+        assertEquals(0L, lookup(realms, token));
     }
 
     @Test
@@ -233,8 +534,8 @@ public class OAuthRealmsTest
         }
         for (int i = 0; i < Short.SIZE; i++)
         {
-            final JsonWebSignature signature = newSignedSignature("realm" + i, "RS256", payload, RFC7515_RS256);
-            assertTrue(realms.unresolve(realms.lookup(signature)));
+            final OAuthVerifiedToken token = newVerifiedToken("realm" + i, payload);
+            assertTrue(realms.unresolve(lookup(realms, token)));
         }
     }
 
@@ -255,16 +556,17 @@ public class OAuthRealmsTest
         assertFalse(realms.unresolve(0x0003_000000000000L));
     }
 
-    private JsonWebSignature newSignedSignature(
-            String kid, String alg, String payload, KeyPair pair) throws Exception
+    private long lookup(
+        OAuthRealms realms,
+        OAuthVerifiedToken verified)
+    {
+        return new OAuthAuthorizationMemo(realms, 1).applyAsLong(verified);
+    }
+
+    private OAuthVerifiedToken newVerifiedToken(
+        String kid,
+        String payload) throws Exception
     {
-        final JsonWebSignature signature = new JsonWebSignature();
-        signature.setPayload(payload);
-        signature.setKey(pair.getPrivate());
-        signature.setKeyIdHeaderValue(kid);
-        signature.setAlgorithmHeaderValue(alg);
-        signature.sign();
-        signature.setKey(pair.getPublic());
-        return signature;
+        return OAuthVerifiedToken.of(kid, null, JwtClaims.parse(payload), null);
     }
 }
@@ -0,0 +1,100 @@
+/**
+ * Copyright 2016-2021 The Reaktivity Project
+ *
+ * The Reaktivity Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package org.reaktivity.nukleus.oauth.internal;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+import org.agrona.concurrent.UnsafeBuffer;
+import org.jose4j.jwt.JwtClaims;
+import org.junit.Test;
+import org.reaktivity.nukleus.oauth.internal.util.JwtClaimsReader;
+
+public class OAuthScopeDictionaryTest
+{
+    @Test
+    public void shouldLookupScopeSetsFromScopeClaim()
+    {
+        final Map<Set<String>, Long> scopeBitsByScopeNames = new LinkedHashMap<>();
+        scopeBitsByScopeNames.put(new HashSet<>(Arrays.asList("read:stream")), 0x01L);
+        scopeBitsByScopeNames.put(new HashSet<>(Arrays.asList("read:stream", "write:stream")), 0x02L);
+        scopeBitsByScopeNames.put(new HashSet<>(Arrays.asList("admin")), 0x04L);
+
+        final OAuthScopeDictionary scopes = new OAuthScopeDictionary(scopeBitsByScopeNames);
+
+        assertEquals(0x00L, scopes.lookup(new byte[0]));
+        assertEquals(0x00L, scopes.lookup("write:stream other".getBytes(UTF_8)));
+        assertEquals(0x01L, scopes.lookup("read:stream".getBytes(UTF_8)));
+        assertEquals(0x03L, scopes.lookup("write:stream\tread:stream".getBytes(UTF_8)));
+        assertEquals(0x07L, scopes.lookup("  admin  read:stream write:stream read:stream ".getBytes(UTF_8)));
+        assertEquals(0x00L, scopes.lookup("administrator read:streams".getBytes(UTF_8)));
+    }
+
+    @Test
+    public void shouldLookupScopeClaimSplitOnWhitespaceRuns() throws Exception
+    {
+        final Map<Set<String>, Long> scopeBitsByScopeNames = new LinkedHashMap<>();
+        scopeBitsByScopeNames.put(new HashSet<>(Arrays.asList("read:stream", "write:stream")), 0x01L);
+        scopeBitsByScopeNames.put(new HashSet<>(Arrays.asList("admin")), 0x02L);
+
+        final OAuthScopeDictionary scopes = new OAuthScopeDictionary(scopeBitsByScopeNames);
+        final JwtClaimsReader claimsRO = new JwtClaimsReader(null);
+
+        final String[] payloads =
+        {
+            "{\"scope\":\"read:stream   write:stream  admin\"}",
+            "{\"scope\":\"  read:stream write:stream admin  \"}",
+            "{\"scope\":\"read:stream\\t\\twrite:stream\\n\\u000badmin\"}",
+            "{\"scope\":\"\\f admin\\r\\nread:stream \\t write:stream\"}",
+        };
+
+        for (String payload : payloads)
+        {
+            final JwtClaimsReader reader = claimsRO.tryWrap(new UnsafeBuffer(payload.getBytes(UTF_8)), 0, payload.length());
+            final OAuthVerifiedToken verified = reader != null
+                    ? OAuthVerifiedToken.of(null, null, reader)
+                    : OAuthVerifiedToken.of(null, null, JwtClaims.parse(payload), null);
+
+            assertEquals(payload, 0x03L, scopes.lookup(verified.scope()));
+        }
+    }
+
+    @Test
+    public void shouldLookupScopeSetsBeyondSingleWord()
+    {
+        final Map<Set<String>, Long> scopeBitsByScopeNames = new LinkedHashMap<>();
+        final Set<String> allScopeNames = new HashSet<>();
+        final StringBuilder scope = new StringBuilder();
+        for (int i = 0; i < 100; i++)
+        {
+            allScopeNames.add("scope" + i);
+            scope.append("scope").append(i).append(' ');
+        }
+        scopeBitsByScopeNames.put(allScopeNames, 0x01L);
+        scopeBitsByScopeNames.put(new HashSet<>(Arrays.asList("scope99")), 0x02L);
+
+        final OAuthScopeDictionary scopes = new OAuthScopeDictionary(scopeBitsByScopeNames);
+
+        assertEquals(0x03L, scopes.lookup(scope.toString().getBytes(UTF_8)));
+        assertEquals(0x02L, scopes.lookup(scope.substring(0, scope.indexOf("scope98 ")).concat("scope99").getBytes(UTF_8)));
+    }
+}
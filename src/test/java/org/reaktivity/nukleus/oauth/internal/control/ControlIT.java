@@ -37,6 +37,7 @@ public class ControlIT
         .addScriptRoot("unresolve", "org/reaktivity/specification/nukleus/oauth/control/unresolve")
         .addScriptRoot("route", "org/reaktivity/specification/nukleus/oauth/control/route")
         .addScriptRoot("unroute", "org/reaktivity/specification/nukleus/oauth/control/unroute")
+        .addScriptRoot("updateKeys", "org/reaktivity/specification/nukleus/oauth/control/update.keys")
         .addScriptRoot("freeze", "org/reaktivity/specification/nukleus/control/freeze");
 
     private final TestRule timeout = new DisableOnDebug(new Timeout(5, SECONDS));
@@ -173,6 +174,24 @@ public class ControlIT
         k3po.finish();
     }
 
+    @Test
+    @Specification({
+        "${updateKeys}/one.key.set/controller"
+    })
+    public void shouldUpdateKeys() throws Exception
+    {
+        k3po.finish();
+    }
+
+    @Test
+    @Specification({
+        "${updateKeys}/fails.invalid.keys/controller"
+    })
+    public void shouldFailToUpdateInvalidKeys() throws Exception
+    {
+        k3po.finish();
+    }
+
     @Test
     @Specification({
         "${unroute}/proxy/fails.unknown.route/controller"
@@ -24,6 +24,7 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.rules.RuleChain.outerRule;
 import static org.reaktivity.nukleus.route.RouteKind.PROXY;
 
+import java.util.Collections;
 import java.util.Random;
 import java.util.concurrent.ExecutionException;
 
@@ -46,6 +47,10 @@ public class ControllerIT
 {
     private static final String[] EMPTY_STRING_ARRAY = new String[0];
 
+    private static final String KEY = "{\"kty\":\"EC\",\"crv\":\"P-256\"," +
+        "\"x\":\"s25Av5quR2nmBCeUad0rXgsD_duCJ1Pc1Jev8InPGvU\",\"y\":\"7bZhemgvuzbJXleeKb0aYJ6X5PPGJT7mds4hZ-IaXuw\"," +
+        "\"kid\":\"ES256\",\"alg\":\"ES256\"}";
+
     private final Gson gson = new Gson();
 
     private final K3poRule k3po = new K3poRule()
@@ -53,6 +58,7 @@ public class ControllerIT
         .addScriptRoot("unresolve", "org/reaktivity/specification/nukleus/oauth/control/unresolve")
         .addScriptRoot("route", "org/reaktivity/specification/nukleus/oauth/control/route")
         .addScriptRoot("unroute", "org/reaktivity/specification/nukleus/oauth/control/unroute")
+        .addScriptRoot("updateKeys", "org/reaktivity/specification/nukleus/oauth/control/update.keys")
         .addScriptRoot("freeze", "org/reaktivity/specification/nukleus/control/freeze");
 
     private final TestRule timeout = new DisableOnDebug(new Timeout(5, SECONDS));
@@ -413,6 +419,61 @@ public class ControllerIT
         k3po.finish();
     }
 
+    @Test
+    @Specification({
+        "${updateKeys}/one.key.set/nukleus"
+    })
+    public void shouldUpdateKeys() throws Exception
+    {
+        k3po.start();
+
+        reaktor.controller(OAuthController.class)
+            .updateKeys("{\"keys\":[" + KEY + "]}")
+            .get();
+
+        k3po.finish();
+    }
+
+    @Test
+    @Specification({
+        "${updateKeys}/fails.invalid.keys/nukleus"
+    })
+    public void shouldFailToUpdateInvalidKeys() throws Exception
+    {
+        thrown.expect(either(is(instanceOf(IllegalStateException.class)))
+                .or(is(instanceOf(ExecutionException.class))));
+        thrown.expectCause(either(nullValue(Exception.class)).or(is(instanceOf(IllegalStateException.class))));
+
+        k3po.start();
+
+        reaktor.controller(OAuthController.class)
+            .updateKeys("{\"keys\":[{\"kty\":\"EC\"}]}")
+            .get();
+
+        k3po.finish();
+    }
+
+    @Test
+    @Specification({
+        "${updateKeys}/fails.too.large/nukleus"
+    })
+    public void shouldFailToUpdateKeysTooLarge() throws Exception
+    {
+        thrown.expect(either(is(instanceOf(IllegalStateException.class)))
+                .or(is(instanceOf(ExecutionException.class))));
+        thrown.expectCause(either(nullValue(Exception.class)).or(is(instanceOf(IllegalStateException.class))));
+
+        k3po.start();
+
+        // exceeds the maximum message length of the 4096 byte command buffer
+        final String keys = "{\"keys\":[" + String.join(",", Collections.nCopies(4, KEY)) + "]}";
+        reaktor.controller(OAuthController.class)
+            .updateKeys(keys)
+            .get();
+
+        k3po.finish();
+    }
+
     @Test
     @Specification({
         "${unroute}/proxy/fails.unknown.route/nukleus"
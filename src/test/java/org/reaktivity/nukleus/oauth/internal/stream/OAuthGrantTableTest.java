@@ -0,0 +1,77 @@
+/**
+ * Copyright 2016-2021 The Reaktivity Project
+ *
+ * The Reaktivity Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package org.reaktivity.nukleus.oauth.internal.stream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class OAuthGrantTableTest
+{
+    @Test
+    public void shouldMatchHashMap()
+    {
+        final Random random = new Random(42L);
+        final Map<String, Integer> expected = new HashMap<>();
+        final OAuthGrantTable<Integer> grants = new OAuthGrantTable<>(0);
+
+        for (int i = 0; i < 200000; i++)
+        {
+            final int realmId = 0x00FF + random.nextInt(4);
+            final long affinity = random.nextInt(64);
+            final String subject = "user" + random.nextInt(256);
+            final String key = realmId + ":" + affinity + ":" + subject;
+
+            if (random.nextInt(3) == 0)
+            {
+                assertEquals(expected.remove(key) != null, grants.remove(realmId, affinity, subject));
+            }
+            else
+            {
+                expected.put(key, i);
+                grants.put(realmId, affinity, subject, i);
+            }
+
+            assertEquals(expected.get(key), grants.get(realmId, affinity, subject));
+            assertEquals(expected.size(), grants.size());
+        }
+    }
+
+    @Test
+    public void shouldDistinguishRealmAffinityAndSubject()
+    {
+        final OAuthGrantTable<Object> grants = new OAuthGrantTable<>(16);
+        final Object grant = new Object();
+
+        grants.put(0x00FF, 1L, "testuser", grant);
+
+        assertSame(grant, grants.get(0x00FF, 1L, new String("testuser")));
+        assertNull(grants.get(0x017F, 1L, "testuser"));
+        assertNull(grants.get(0x00FF, 2L, "testuser"));
+        assertNull(grants.get(0x00FF, 1L, "otheruser"));
+        assertFalse(grants.remove(0x00FF, 2L, "testuser"));
+        assertTrue(grants.remove(0x00FF, 1L, "testuser"));
+        assertEquals(0, grants.size());
+    }
+}
@@ -0,0 +1,87 @@
+/**
+ * Copyright 2016-2021 The Reaktivity Project
+ *
+ * The Reaktivity Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package org.reaktivity.nukleus.oauth.internal.stream;
+
+import static java.nio.charset.StandardCharsets.US_ASCII;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.reaktivity.nukleus.oauth.internal.stream.OAuthProxyFactory.isWellFormedToken;
+
+import org.agrona.DirectBuffer;
+import org.agrona.concurrent.UnsafeBuffer;
+import org.junit.Test;
+
+public class OAuthProxyFactoryTest
+{
+    private static final int TOKEN_MAX_LENGTH = 64;
+
+    @Test
+    public void shouldAcceptWellFormedToken()
+    {
+        assertTrue(isWellFormedToken(token("eyJhbGciOiJIUzI1NiJ9.eyJzdWIiOiJ0ZXN0In0.c2ln-_"), TOKEN_MAX_LENGTH));
+        assertTrue(isWellFormedToken(token("ewogImFsZyI6Im5vbmUiIH0.e30.x"), TOKEN_MAX_LENGTH));
+    }
+
+    @Test
+    public void shouldRejectTokenWithWrongSegmentCount()
+    {
+        assertFalse(isWellFormedToken(token("eyJhbGciOiJIUzI1NiJ9"), TOKEN_MAX_LENGTH));
+        assertFalse(isWellFormedToken(token("eyJhbGciOiJIUzI1NiJ9.e30"), TOKEN_MAX_LENGTH));
+        assertFalse(isWellFormedToken(token("eyJhbGciOiJIUzI1NiJ9.e30.c2ln.c2ln"), TOKEN_MAX_LENGTH));
+        assertFalse(isWellFormedToken(token("eyJhbGciOiJIUzI1NiJ9.e30.c2ln.c2ln.c2ln"), TOKEN_MAX_LENGTH));
+    }
+
+    @Test
+    public void shouldRejectTokenWithEmptySegments()
+    {
+        assertFalse(isWellFormedToken(token("eyJhbGciOiJIUzI1NiJ9..c2ln"), TOKEN_MAX_LENGTH));
+        assertFalse(isWellFormedToken(token("eyJhbGciOiJIUzI1NiJ9.e30."), TOKEN_MAX_LENGTH));
+        assertFalse(isWellFormedToken(token("eyJhbGciOiJIUzI1NiJ9.."), TOKEN_MAX_LENGTH));
+        assertFalse(isWellFormedToken(token(".e30.c2ln"), TOKEN_MAX_LENGTH));
+        assertFalse(isWellFormedToken(token(""), TOKEN_MAX_LENGTH));
+    }
+
+    @Test
+    public void shouldRejectTokenWithNonBase64UrlCharacters()
+    {
+        assertFalse(isWellFormedToken(token("eyJhbGciOiJIUzI1NiJ9.e30.c2ln+/"), TOKEN_MAX_LENGTH));
+        assertFalse(isWellFormedToken(token("eyJhbGciOiJIUzI1NiJ9.e30.c2ln=="), TOKEN_MAX_LENGTH));
+        assertFalse(isWellFormedToken(token("eyJhbGciOiJIUzI1NiJ9.e 30.c2ln"), TOKEN_MAX_LENGTH));
+        assertFalse(isWellFormedToken(token("eyJhbGciOiJIUzI1NiJ9.e30.c2ln%"), TOKEN_MAX_LENGTH));
+    }
+
+    @Test
+    public void shouldRejectTokenWithoutJsonHeader()
+    {
+        assertFalse(isWellFormedToken(token("abJhbGciOiJIUzI1NiJ9.e30.c2ln"), TOKEN_MAX_LENGTH));
+        assertFalse(isWellFormedToken(token("eJhbGciOiJIUzI1NiJ9.e30.c2ln"), TOKEN_MAX_LENGTH));
+    }
+
+    @Test
+    public void shouldRejectTokenTooLong()
+    {
+        final String token = "eyJhbGciOiJIUzI1NiJ9.e30.c2ln";
+
+        assertTrue(isWellFormedToken(token(token), token.length()));
+        assertFalse(isWellFormedToken(token(token), token.length() - 1));
+    }
+
+    private static DirectBuffer token(
+        String token)
+    {
+        return new UnsafeBuffer(token.getBytes(US_ASCII));
+    }
+}
@@ -0,0 +1,132 @@
+/**
+ * Copyright 2016-2021 The Reaktivity Project
+ *
+ * The Reaktivity Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package org.reaktivity.nukleus.oauth.internal.stream;
+
+import static java.nio.charset.StandardCharsets.US_ASCII;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.agrona.DirectBuffer;
+import org.agrona.concurrent.UnsafeBuffer;
+import org.junit.Test;
+
+public class OAuthRejectedTokenCacheTest
+{
+    @Test
+    public void shouldContainRejectedTokenUntilExpired()
+    {
+        final OAuthRejectedTokenCache rejected = new OAuthRejectedTokenCache(16, 1000L);
+
+        rejected.add(token("eyJhbGciOiJub25lIn0.e30.invalid"), 0L);
+
+        assertTrue(rejected.contains(token("eyJhbGciOiJub25lIn0.e30.invalid"), 999L));
+        assertFalse(rejected.contains(token("eyJhbGciOiJub25lIn0.e30.invalie"), 999L));
+        assertFalse(rejected.contains(token("eyJhbGciOiJub25lIn0.e30.invalid"), 1000L));
+    }
+
+    @Test
+    public void shouldEvictWhenFull()
+    {
+        final OAuthRejectedTokenCache rejected = new OAuthRejectedTokenCache(8, 1000L);
+
+        for (int i = 0; i < 64; i++)
+        {
+            rejected.add(token("token" + i), i);
+        }
+
+        assertTrue(rejected.contains(token("token63"), 64L));
+    }
+
+    @Test
+    public void shouldNotExceedCapacity()
+    {
+        final OAuthRejectedTokenCache rejected = new OAuthRejectedTokenCache(8, 1000L);
+
+        for (int i = 0; i < 64; i++)
+        {
+            rejected.add(token("token" + i), 0L);
+        }
+
+        int contained = 0;
+        for (int i = 0; i < 64; i++)
+        {
+            contained += rejected.contains(token("token" + i), 0L) ? 1 : 0;
+        }
+
+        assertTrue(contained > 0);
+        assertTrue(contained <= 8);
+    }
+
+    @Test
+    public void shouldNotGrowWhenSameTokenAdded()
+    {
+        final OAuthRejectedTokenCache rejected = new OAuthRejectedTokenCache(8, 1000L);
+
+        for (int i = 0; i < 8; i++)
+        {
+            rejected.add(token("token" + i), 0L);
+        }
+
+        for (int i = 0; i < 64; i++)
+        {
+            rejected.add(token("token0"), i);
+        }
+
+        for (int i = 0; i < 8; i++)
+        {
+            assertTrue(rejected.contains(token("token" + i), 63L));
+        }
+        assertTrue(rejected.contains(token("token0"), 1062L));
+        assertFalse(rejected.contains(token("token1"), 1062L));
+    }
+
+    @Test
+    public void shouldReplaceExpiredToken()
+    {
+        final OAuthRejectedTokenCache rejected = new OAuthRejectedTokenCache(8, 1000L);
+
+        for (int i = 0; i < 8; i++)
+        {
+            rejected.add(token("token" + i), 0L);
+        }
+
+        for (int i = 8; i < 16; i++)
+        {
+            rejected.add(token("token" + i), 1000L);
+        }
+
+        for (int i = 8; i < 16; i++)
+        {
+            assertTrue(rejected.contains(token("token" + i), 1000L));
+        }
+    }
+
+    @Test
+    public void shouldNotContainTokenWhenDisabled()
+    {
+        final OAuthRejectedTokenCache rejected = new OAuthRejectedTokenCache(16, 0L);
+
+        rejected.add(token("token"), 0L);
+
+        assertFalse(rejected.contains(token("token"), 0L));
+    }
+
+    private static DirectBuffer token(
+        String token)
+    {
+        return new UnsafeBuffer(token.getBytes(US_ASCII));
+    }
+}
@@ -0,0 +1,110 @@
+/**
+ * Copyright 2016-2021 The Reaktivity Project
+ *
+ * The Reaktivity Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package org.reaktivity.nukleus.oauth.internal.stream;
+
+import static java.nio.charset.StandardCharsets.US_ASCII;
+import static java.util.Collections.emptyMap;
+import static java.util.Collections.singletonMap;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import org.agrona.DirectBuffer;
+import org.agrona.concurrent.UnsafeBuffer;
+import org.jose4j.jwk.JsonWebKey;
+import org.jose4j.jwk.OctJwkGenerator;
+import org.jose4j.jwt.JwtClaims;
+import org.jose4j.jwt.NumericDate;
+import org.junit.Test;
+import org.reaktivity.nukleus.oauth.internal.OAuthKey;
+import org.reaktivity.nukleus.oauth.internal.OAuthRealms;
+import org.reaktivity.nukleus.oauth.internal.OAuthVerifiedToken;
+
+public class OAuthTokenCacheTest
+{
+    @Test
+    public void shouldGetVerifiedTokenByTokenBytes() throws Exception
+    {
+        final OAuthTokenCache verifiedTokens = new OAuthTokenCache(16);
+        final OAuthVerifiedToken verified = OAuthVerifiedToken.of("kid", null, new JwtClaims(), null);
+
+        final UnsafeBuffer token = new UnsafeBuffer("header.payload.signature".getBytes(US_ASCII));
+        verifiedTokens.put(token, verified);
+        token.putByte(0, (byte) 'H');
+
+        assertSame(verified, verifiedTokens.get(token("header.payload.signature"), 0L));
+        assertNull(verifiedTokens.get(token("Header.payload.signature"), 0L));
+    }
+
+    @Test
+    public void shouldEvictLeastRecentlyUsedToken() throws Exception
+    {
+        final OAuthTokenCache verifiedTokens = new OAuthTokenCache(2);
+        final OAuthVerifiedToken verified1 = OAuthVerifiedToken.of("kid1", null, new JwtClaims(), null);
+        final OAuthVerifiedToken verified2 = OAuthVerifiedToken.of("kid2", null, new JwtClaims(), null);
+        final OAuthVerifiedToken verified3 = OAuthVerifiedToken.of("kid3", null, new JwtClaims(), null);
+
+        verifiedTokens.put(token("token1"), verified1);
+        verifiedTokens.put(token("token2"), verified2);
+        assertSame(verified1, verifiedTokens.get(token("token1"), 0L));
+
+        verifiedTokens.put(token("token3"), verified3);
+
+        assertSame(verified1, verifiedTokens.get(token("token1"), 0L));
+        assertNull(verifiedTokens.get(token("token2"), 0L));
+        assertSame(verified3, verifiedTokens.get(token("token3"), 0L));
+    }
+
+    @Test
+    public void shouldNotGetVerifiedTokenAfterExpiration() throws Exception
+    {
+        final OAuthTokenCache verifiedTokens = new OAuthTokenCache(16);
+        final JwtClaims claims = new JwtClaims();
+        claims.setExpirationTime(NumericDate.fromMilliseconds(1000L));
+        final OAuthVerifiedToken verified = OAuthVerifiedToken.of("kid", null, claims, null);
+
+        verifiedTokens.put(token("token"), verified);
+
+        assertSame(verified, verifiedTokens.get(token("token"), 1000L));
+        assertNull(verifiedTokens.get(token("token"), 1001L));
+        assertNull(verifiedTokens.get(token("token"), 0L));
+    }
+
+    @Test
+    public void shouldNotGetVerifiedTokenAfterKeyRevoked() throws Exception
+    {
+        final JsonWebKey jwk = OctJwkGenerator.generateJwk(256);
+        jwk.setKeyId("kid");
+        jwk.setAlgorithm("HS256");
+        final OAuthKey key = OAuthKey.of(jwk);
+        final OAuthRealms realms = new OAuthRealms(singletonMap("kid", key));
+
+        final OAuthTokenCache verifiedTokens = new OAuthTokenCache(16);
+        final OAuthVerifiedToken verified = OAuthVerifiedToken.of("kid", key, new JwtClaims(), null);
+
+        verifiedTokens.put(token("token"), verified);
+        assertSame(verified, verifiedTokens.get(token("token"), 0L));
+
+        realms.updateKeys(emptyMap());
+
+        assertNull(verifiedTokens.get(token("token"), 0L));
+    }
+
+    private static DirectBuffer token(
+        String token)
+    {
+        return new UnsafeBuffer(token.getBytes(US_ASCII));
+    }
+}
@@ -0,0 +1,184 @@
+/**
+ * Copyright 2016-2021 The Reaktivity Project
+ *
+ * The Reaktivity Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package org.reaktivity.nukleus.oauth.internal.stream;
+
+import static java.nio.charset.StandardCharsets.US_ASCII;
+import static java.util.Collections.singletonMap;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.agrona.DirectBuffer;
+import org.agrona.concurrent.UnsafeBuffer;
+import org.jose4j.jwk.PublicJsonWebKey;
+import org.jose4j.jwk.RsaJwkGenerator;
+import org.jose4j.jws.JsonWebSignature;
+import org.jose4j.jwt.JwtClaims;
+import org.jose4j.jwt.NumericDate;
+import org.jose4j.lang.JoseException;
+import org.junit.Before;
+import org.junit.Test;
+import org.reaktivity.nukleus.oauth.internal.OAuthKey;
+import org.reaktivity.nukleus.oauth.internal.OAuthRealms;
+import org.reaktivity.nukleus.oauth.internal.OAuthVerifiedToken;
+
+public class OAuthTokenVerifierTest
+{
+    private static final long NOW = 1600000000000L;
+
+    private final Map<String, OAuthKey> keysByKid = new HashMap<>();
+    private final Map<String, PublicJsonWebKey> signingKeysByKid = new HashMap<>();
+
+    private OAuthRealms realms;
+    private OAuthTokenVerifier verifier;
+
+    @Before
+    public void initKeys() throws Exception
+    {
+        for (String algorithm : new String[] { "RS256", "PS256" })
+        {
+            final PublicJsonWebKey jwk = RsaJwkGenerator.generateJwk(2048);
+            jwk.setKeyId(algorithm);
+            jwk.setAlgorithm(algorithm);
+            signingKeysByKid.put(algorithm, jwk);
+
+            final PublicJsonWebKey publicJwk = PublicJsonWebKey.Factory.newPublicJwk(jwk.getPublicKey());
+            publicJwk.setKeyId(algorithm);
+            publicJwk.setAlgorithm(algorithm);
+            keysByKid.put(algorithm, OAuthKey.of(publicJwk));
+        }
+
+        realms = new OAuthRealms(keysByKid);
+        verifier = new OAuthTokenVerifier(realms::lookupKey, "https://reaktivity.org/challenge_timeout", 8192);
+    }
+
+    @Test
+    public void shouldVerifyToken() throws Exception
+    {
+        final OAuthVerifiedToken verified = verifier.verify(token("RS256", "RS256", NOW + 30000L), NOW);
+
+        assertNotNull(verified);
+        assertEquals("RS256", verified.kid());
+        assertEquals("testuser", verified.subject());
+        assertEquals(NOW + 30000L, verified.expiresAtMillis());
+    }
+
+    @Test
+    public void shouldVerifyWellFormedToken() throws Exception
+    {
+        final DirectBuffer token = token("RS256", "RS256", NOW + 30000L);
+
+        assertTrue(OAuthProxyFactory.isWellFormedToken(token, 8192));
+        assertNotNull(verifier.verify(token, NOW));
+    }
+
+    @Test
+    public void shouldVerifyTokenWithoutVerifier() throws Exception
+    {
+        final OAuthVerifiedToken verified = verifier.verify(token("PS256", "PS256", NOW + 30000L), NOW);
+
+        assertNotNull(verified);
+        assertEquals("PS256", verified.kid());
+    }
+
+    @Test
+    public void shouldResolveKeyOncePerHeader() throws Exception
+    {
+        final int[] lookups = new int[1];
+        final OAuthTokenVerifier verifier = new OAuthTokenVerifier((kid, offset, length) ->
+        {
+            lookups[0]++;
+            return realms.lookupKey(kid, offset, length);
+        }, null, 8192);
+
+        assertNotNull(verifier.verify(token("RS256", "RS256", NOW + 30000L), NOW));
+        assertNotNull(verifier.verify(token("RS256", "RS256", NOW + 60000L), NOW));
+        assertEquals(1, lookups[0]);
+    }
+
+    @Test
+    public void shouldResolveUnknownKeyOncePerHeader() throws Exception
+    {
+        final int[] lookups = new int[1];
+        final OAuthTokenVerifier verifier = new OAuthTokenVerifier((kid, offset, length) ->
+        {
+            lookups[0]++;
+            return null;
+        }, null, 8192);
+
+        assertNull(verifier.verify(token("RS256", "RS256", NOW + 30000L), NOW));
+        assertNull(verifier.verify(token("RS256", "RS256", NOW + 60000L), NOW));
+        assertEquals(1, lookups[0]);
+    }
+
+    @Test
+    public void shouldVerifyTokenWithUnknownKeyAfterKeysChange() throws Exception
+    {
+        final OAuthRealms realms = new OAuthRealms(singletonMap("PS256", keysByKid.get("PS256")));
+        final OAuthTokenVerifier verifier = new OAuthTokenVerifier(realms, null, 8192);
+        final DirectBuffer token = token("RS256", "RS256", NOW + 30000L);
+
+        assertNull(verifier.verify(token, NOW));
+
+        realms.updateKeys(keysByKid);
+
+        assertNotNull(verifier.verify(token, NOW));
+    }
+
+    @Test
+    public void shouldNotVerifyExpiredToken() throws Exception
+    {
+        assertNull(verifier.verify(token("RS256", "RS256", NOW - 1L), NOW));
+    }
+
+    @Test
+    public void shouldNotVerifyTokenWithMismatchedAlgorithm() throws Exception
+    {
+        assertNull(verifier.verify(token("RS256", "PS256", NOW + 30000L), NOW));
+    }
+
+    @Test
+    public void shouldNotVerifyTokenWithInvalidSignature() throws Exception
+    {
+        final String token = new String(token("RS256", "RS256", NOW + 30000L).byteArray(), US_ASCII);
+        final String tampered = token.substring(0, token.length() - 2) + (token.endsWith("AA") ? "BA" : "AA");
+
+        assertNull(verifier.verify(new UnsafeBuffer(tampered.getBytes(US_ASCII)), NOW));
+        assertNull(verifier.verify(new UnsafeBuffer((token + ".").getBytes(US_ASCII)), NOW));
+    }
+
+    private DirectBuffer token(
+        String kid,
+        String algorithm,
+        long expiresAtMillis) throws JoseException
+    {
+        final JwtClaims claims = new JwtClaims();
+        claims.setClaim("sub", "testuser");
+        claims.setExpirationTime(NumericDate.fromMilliseconds(expiresAtMillis));
+
+        final JsonWebSignature signature = new JsonWebSignature();
+        signature.setPayload(claims.toJson());
+        signature.setKeyIdHeaderValue(kid);
+        signature.setAlgorithmHeaderValue(algorithm);
+        signature.setKey(signingKeysByKid.get(kid).getPrivateKey());
+
+        return new UnsafeBuffer(signature.getCompactSerialization().getBytes(US_ASCII));
+    }
+}
@@ -19,6 +19,7 @@ import static java.util.concurrent.TimeUnit.SECONDS;
 import static org.junit.rules.RuleChain.outerRule;
 import static org.reaktivity.nukleus.oauth.internal.OAuthConfiguration.AUTO_DISCOVER_REALMS_NAME;
 import static org.reaktivity.nukleus.oauth.internal.OAuthConfiguration.KEYS_NAME;
+import static org.reaktivity.nukleus.oauth.internal.OAuthConfiguration.VERIFY_WORKERS_NAME;
 import static org.reaktivity.reaktor.test.ReaktorRule.EXTERNAL_AFFINITY_MASK;
 
 import org.junit.Rule;
@@ -269,6 +270,29 @@ public class StreamsIT
         k3po.finish();
     }
 
+    @Test
+    @Specification({
+        "${route}/resolve.multiple.realms.with.no.roles.then.route.proxy/controller",
+        "${streams}/request.with.signed.jwt.es256.forwarded/accept/client",
+        "${streams}/request.with.signed.jwt.es256.forwarded/connect/server"
+        })
+    @Configure(name = VERIFY_WORKERS_NAME, value = "2")
+    public void shouldForwardRequestWithValidJwtEC256OnSecuredRouteWithVerifyWorkers() throws Exception
+    {
+        k3po.finish();
+    }
+
+    @Test
+    @Specification({
+        "${route}/controller",
+        "${streams}/request.with.invalid.jwt.no.route/accept/client"
+        })
+    @Configure(name = VERIFY_WORKERS_NAME, value = "2")
+    public void shouldRejectRequestWithInvalidJwtWithVerifyWorkers() throws Exception
+    {
+        k3po.finish();
+    }
+
     @Specification({
         "${route}/resolve.one.realm.with.set.roles.then.route.proxy/controller",
         "${streams}/request.with.scopes.with.signed.jwt.rs256.forwarded/accept/client",
@@ -0,0 +1,96 @@
+/**
+ * Copyright 2016-2021 The Reaktivity Project
+ *
+ * The Reaktivity Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package org.reaktivity.nukleus.oauth.internal.util;
+
+import static java.nio.charset.StandardCharsets.US_ASCII;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Base64;
+
+import org.agrona.DirectBuffer;
+import org.agrona.MutableDirectBuffer;
+import org.agrona.concurrent.UnsafeBuffer;
+import org.junit.Test;
+
+public class Base64UtilTest
+{
+    @Test
+    public void shouldDecodeUnpaddedSegments()
+    {
+        for (int length = 0; length < 32; length++)
+        {
+            final byte[] expected = new byte[length];
+            for (int i = 0; i < length; i++)
+            {
+                expected[i] = (byte) (i * 37 + 251);
+            }
+
+            final String encoded = Base64.getUrlEncoder().withoutPadding().encodeToString(expected);
+            final DirectBuffer src = new UnsafeBuffer(encoded.getBytes(US_ASCII));
+            final MutableDirectBuffer dst = new UnsafeBuffer(new byte[64]);
+
+            assertEquals(length, Base64Util.decodedLengthUrl(src.capacity()));
+            assertEquals(length, Base64Util.decodeUrl(src, 0, src.capacity(), dst, 3));
+
+            final byte[] actual = new byte[length];
+            dst.getBytes(3, actual);
+            assertArrayEquals(expected, actual);
+        }
+    }
+
+    @Test
+    public void shouldDecodeSegmentWithinToken()
+    {
+        final DirectBuffer src = new UnsafeBuffer("eyJhbGciOiJSUzI1NiJ9.e30.sig".getBytes(US_ASCII));
+        final MutableDirectBuffer dst = new UnsafeBuffer(new byte[64]);
+
+        final int length = Base64Util.decodeUrl(src, 0, 20, dst, 0);
+
+        assertEquals("{\"alg\":\"RS256\"}", dst.getStringWithoutLengthUtf8(0, length));
+    }
+
+    @Test
+    public void shouldRejectInvalidLength()
+    {
+        final DirectBuffer src = new UnsafeBuffer("abcde".getBytes(US_ASCII));
+        final MutableDirectBuffer dst = new UnsafeBuffer(new byte[64]);
+
+        assertEquals(-1, Base64Util.decodeUrl(src, 0, src.capacity(), dst, 0));
+    }
+
+    @Test
+    public void shouldRejectInvalidAlphabet()
+    {
+        final DirectBuffer src = new UnsafeBuffer("ab+/".getBytes(US_ASCII));
+        final MutableDirectBuffer dst = new UnsafeBuffer(new byte[64]);
+
+        assertEquals(-1, Base64Util.decodeUrl(src, 0, src.capacity(), dst, 0));
+        assertFalse(Base64Util.isUrlAlphabet((byte) '='));
+        assertTrue(Base64Util.isUrlAlphabet((byte) '_'));
+    }
+
+    @Test
+    public void shouldRejectInsufficientCapacity()
+    {
+        final DirectBuffer src = new UnsafeBuffer("YWJjZGVm".getBytes(US_ASCII));
+        final MutableDirectBuffer dst = new UnsafeBuffer(new byte[5]);
+
+        assertEquals(-1, Base64Util.decodeUrl(src, 0, src.capacity(), dst, 0));
+    }
+}
@@ -0,0 +1,144 @@
+/**
+ * Copyright 2016-2021 The Reaktivity Project
+ *
+ * The Reaktivity Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package org.reaktivity.nukleus.oauth.internal.util;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.agrona.DirectBuffer;
+import org.agrona.concurrent.UnsafeBuffer;
+import org.jose4j.jwt.JwtClaims;
+import org.junit.Test;
+
+public class JwtClaimsReaderTest
+{
+    private static final String CHALLENGE_TIMEOUT = "https://reaktivity.org/challenge_timeout";
+
+    private final JwtClaimsReader claimsRO = new JwtClaimsReader(CHALLENGE_TIMEOUT);
+
+    @Test
+    public void shouldReadClaims()
+    {
+        final JwtClaims claims = new JwtClaims();
+        claims.setClaim("iss", "test issuer");
+        claims.setClaim("sub", "testuser");
+        claims.setClaim("aud", "testaudience");
+        claims.setClaim("scope", "read:stream write:stream");
+        claims.setClaim("exp", 1600000030L);
+        claims.setClaim("nbf", 1600000000L);
+        claims.setClaim("ignored", new Object[] { "{[\"", 1.5e3, true, null });
+        final String payload = claims.toJson();
+
+        final JwtClaimsReader reader = claimsRO.tryWrap(buffer(payload), 0, payload.length());
+
+        assertNotNull(reader);
+        assertEquals("test issuer", string(reader, reader.issuerOffset(), reader.issuerLength()));
+        assertEquals("testuser", string(reader, reader.subjectOffset(), reader.subjectLength()));
+        assertEquals("read:stream write:stream", string(reader, reader.scopeOffset(), reader.scopeLength()));
+        assertEquals(1, reader.audienceCount());
+        assertEquals("testaudience", string(reader, reader.audienceOffset(0), reader.audienceLength(0)));
+        assertTrue(reader.hasExpirationTime());
+        assertEquals(1600000030L, reader.expirationTime());
+        assertTrue(reader.hasNotBefore());
+        assertEquals(1600000000L, reader.notBefore());
+        assertFalse(reader.hasChallengeTimeout());
+    }
+
+    @Test
+    public void shouldReadAudiencesAndChallengeTimeout()
+    {
+        final String payload = "{ \"aud\" : [ \"one\", \"two\" ], \"nested\": {\"aud\": \"three\"}, " +
+                "\"https://reaktivity.org/challenge_timeout\": 30 }";
+
+        final JwtClaimsReader reader = claimsRO.tryWrap(buffer(payload), 0, payload.length());
+
+        assertNotNull(reader);
+        assertEquals(2, reader.audienceCount());
+        assertEquals("one", string(reader, reader.audienceOffset(0), reader.audienceLength(0)));
+        assertEquals("two", string(reader, reader.audienceOffset(1), reader.audienceLength(1)));
+        assertEquals(-1, reader.issuerLength());
+        assertEquals(-1, reader.subjectLength());
+        assertEquals(-1, reader.scopeLength());
+        assertFalse(reader.hasExpirationTime());
+        assertTrue(reader.hasChallengeTimeout());
+        assertEquals(30L, reader.challengeTimeout());
+    }
+
+    @Test
+    public void shouldNotReadUnusualClaims()
+    {
+        final String[] payloads =
+        {
+            "",
+            "[]",
+            "{\"sub\":\"test\\u0075ser\"}",
+            "{\"sub\":42}",
+            "{\"iss\":[\"test issuer\"]}",
+            "{\"aud\":[\"one\",2]}",
+            "{\"exp\":1600000030.5}",
+            "{\"exp\":\"1600000030\"}",
+            "{\"https:\\/\\/reaktivity.org\\/challenge_timeout\":30}",
+            "{\"https://reaktivity.org/challenge_timeout\":\"30\"}",
+            "{\"scope\":\"read\"",
+            "{\"scope\":\"read\"} trailing",
+            "{\"ignored\":tru}",
+        };
+
+        for (String payload : payloads)
+        {
+            assertNull(payload, claimsRO.tryWrap(buffer(payload), 0, payload.length()));
+        }
+    }
+
+    @Test
+    public void shouldNotReadDuplicateClaims()
+    {
+        final String[] payloads =
+        {
+            "{\"sub\":\"testuser\",\"sub\":\"admin\"}",
+            "{\"iss\":\"test issuer\",\"iss\":\"test issuer\"}",
+            "{\"aud\":\"one\",\"aud\":[\"two\"]}",
+            "{\"aud\":[],\"aud\":[]}",
+            "{\"exp\":1600000030,\"exp\":1600000060}",
+            "{\"nbf\":1600000000,\"nbf\":1600000030}",
+            "{\"scope\":\"read\",\"scope\":\"read write\"}",
+            "{\"https://reaktivity.org/challenge_timeout\":30,\"https://reaktivity.org/challenge_timeout\":60}",
+        };
+
+        for (String payload : payloads)
+        {
+            assertNull(payload, claimsRO.tryWrap(buffer(payload), 0, payload.length()));
+        }
+    }
+
+    private static DirectBuffer buffer(
+        String payload)
+    {
+        return new UnsafeBuffer(payload.getBytes(UTF_8));
+    }
+
+    private static String string(
+        JwtClaimsReader reader,
+        int offset,
+        int length)
+    {
+        return reader.buffer().getStringWithoutLengthUtf8(offset, length);
+    }
+}